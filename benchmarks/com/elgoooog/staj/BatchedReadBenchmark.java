@@ -0,0 +1,95 @@
+package com.elgoooog.staj;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+/**
+ * Events through a threaded reader one next() at a time against
+ * next(JsonEvent[]) batches. The input is an integration test document
+ * repeated in an array up to about a megabyte; run from the project root.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchedReadBenchmark {
+	private static final int TARGET_BYTES = 1 << 20;
+
+	@Param({ "test1.json", "test2.json", "test3.json" })
+	public String document;
+
+	@Param({ "1", "64" })
+	public int batchSize;
+
+	@Param({ "1024" })
+	public int eventsToBuffer;
+
+	private byte[] json;
+	private JsonEvent[] batch;
+
+	@Setup
+	public void setUp() throws IOException {
+		final byte[] single = Files.readAllBytes(Paths.get("integrationTests",
+				"com", "elgoooog", "staj", document));
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(
+				TARGET_BYTES + single.length);
+		out.write('[');
+		while (out.size() < TARGET_BYTES) {
+			if (out.size() > 1) {
+				out.write(',');
+			}
+			out.write(single);
+		}
+		out.write(']');
+		json = out.toByteArray();
+		batch = new JsonEvent[batchSize];
+	}
+
+	@Benchmark
+	public long read(final Blackhole blackhole) {
+		final StreamingJsonReader reader = new ThreadedStreamingJsonReader(
+				new TokenReader(new ByteArrayInputStream(json)),
+				eventsToBuffer);
+		long events = 0;
+		if (batchSize == 1) {
+			JsonEvent event;
+			do {
+				event = reader.next();
+				blackhole.consume(event);
+				++events;
+			} while (event != JsonEvent.END);
+		} else {
+			JsonEvent last;
+			do {
+				final int count = reader.next(batch);
+				for (int i = 0; i < count; ++i) {
+					blackhole.consume(batch[i]);
+				}
+				events += count;
+				last = batch[count - 1];
+			} while (last != JsonEvent.END);
+		}
+		return events;
+	}
+}
@@ -0,0 +1,141 @@
+package com.elgoooog.staj;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public final class BenchmarkCorpus {
+	private BenchmarkCorpus() {
+	}
+
+	public enum Shape {
+		DEEP_NESTING {
+			@Override
+			protected void appendElement(final StringBuilder builder,
+					final Random random) {
+				final int depth = 200;
+				for (int i = 0; i < depth; ++i) {
+					builder.append(i % 2 == 0 ? "{\"child\":" : "[");
+				}
+				builder.append(random.nextInt(1000));
+				for (int i = depth - 1; i >= 0; --i) {
+					builder.append(i % 2 == 0 ? '}' : ']');
+				}
+			}
+		},
+		LONG_STRINGS {
+			@Override
+			protected void appendElement(final StringBuilder builder,
+					final Random random) {
+				builder.append('"');
+				final int length = 1024 + random.nextInt(4096);
+				for (int i = 0; i < length; ++i) {
+					builder.append(BASE64[random.nextInt(BASE64.length)]);
+				}
+				builder.append('"');
+			}
+		},
+		NUMERIC_ARRAYS {
+			@Override
+			protected void appendElement(final StringBuilder builder,
+					final Random random) {
+				builder.append('[');
+				for (int i = 0; i < 64; ++i) {
+					if (i > 0) {
+						builder.append(',');
+					}
+					switch (i % 4) {
+					case 0:
+						builder.append(random.nextInt());
+						break;
+					case 1:
+						builder.append(random.nextLong());
+						break;
+					case 2:
+						builder.append(random.nextInt(1000000) / 1000.0);
+						break;
+					default:
+						builder.append(random.nextInt(100000)).append('.')
+								.append(random.nextInt(1000)).append("e-7");
+					}
+				}
+				builder.append(']');
+			}
+		},
+		SMALL_OBJECTS {
+			@Override
+			protected void appendElement(final StringBuilder builder,
+					final Random random) {
+				builder.append("{\"id\":").append(random.nextInt(1000000))
+						.append(",\"name\":\"user").append(random.nextInt(100))
+						.append("\",\"active\":").append(random.nextBoolean())
+						.append(",\"score\":").append(random.nextInt(100))
+						.append('.').append(random.nextInt(100))
+						.append(",\"tags\":[\"a\",\"b\"],\"parent\":null}");
+			}
+		},
+		ESCAPED_TEXT {
+			@Override
+			protected void appendElement(final StringBuilder builder,
+					final Random random) {
+				builder.append('"');
+				for (int i = 0; i < 256; ++i) {
+					final int r = random.nextInt(16);
+					if (r < 2) {
+						builder.append("\\n");
+					} else if (r < 4) {
+						builder.append("\\\"");
+					} else if (r < 5) {
+						builder.append("\\u00e9");
+					} else if (r < 6) {
+						builder.append("\\\\");
+					} else if (r < 7) {
+						builder.append("\u00fc");
+					} else {
+						builder.append((char) ('a' + random.nextInt(26)));
+					}
+				}
+				builder.append('"');
+			}
+		};
+
+		private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+				.toCharArray();
+
+		protected abstract void appendElement(StringBuilder builder,
+				Random random);
+	}
+
+	/**
+	 * Builds a top level array of shape elements of roughly the given size.
+	 */
+	public static byte[] generate(final Shape shape, final int targetBytes) {
+		final Random random = new Random(42);
+		final StringBuilder builder = new StringBuilder(targetBytes + 8192);
+		builder.append('[');
+		do {
+			if (builder.length() > 1) {
+				builder.append(',');
+			}
+			shape.appendElement(builder, random);
+		} while (builder.length() < targetBytes);
+		builder.append(']');
+
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Builds newline-delimited JSON with one shape element per line. Only
+	 * shapes whose elements are objects or arrays make valid documents.
+	 */
+	public static byte[] generateNdjson(final Shape shape,
+			final int targetBytes) {
+		final Random random = new Random(42);
+		final StringBuilder builder = new StringBuilder(targetBytes + 8192);
+		do {
+			shape.appendElement(builder, random);
+			builder.append('\n');
+		} while (builder.length() < targetBytes);
+
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
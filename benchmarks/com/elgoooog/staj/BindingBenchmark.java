@@ -0,0 +1,369 @@
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+/**
+ * Binding each integration test document to objects with a JsonBinder
+ * against hand-written code walking the JsonEvents of a synchronous reader
+ * into the same classes. Throughput is documents/s; run from the project
+ * root.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+	@Param({ "test1.json", "test2.json", "test3.json" })
+	public String document;
+
+	private final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+	private final JsonBinder binder = factory.createJsonBinder();
+	private byte[] json;
+	private Class<?> type;
+
+	@Setup
+	public void setUp() throws IOException {
+		json = Files.readAllBytes(Paths.get("integrationTests", "com",
+				"elgoooog", "staj", document));
+		type = document.equals("test1.json") ? Test1.class : document
+				.equals("test2.json") ? Person.class : Problems.class;
+	}
+
+	@Benchmark
+	public Object binder() {
+		return binder.read(json, type);
+	}
+
+	@Benchmark
+	public Object events() {
+		final StreamingJsonReader reader = factory
+				.createSynchronousStreamingJsonReader(json);
+		reader.next();
+		reader.next();
+		final Object value = type == Test1.class ? walkTest1(reader)
+				: type == Person.class ? walkPerson(reader)
+						: walkProblems(reader);
+		reader.next();
+		return value;
+	}
+
+	private static Test1 walkTest1(final StreamingJsonReader reader) {
+		final Test1 test1 = new Test1();
+		JsonEvent event;
+		while ((event = reader.next()) != JsonEvent.END_OBJECT) {
+			switch (event.value) {
+			case "something":
+				test1.something = reader.next().value;
+				break;
+			case "another":
+				reader.next();
+				test1.another = walkList(reader);
+				break;
+			case "pint":
+				test1.pint = reader.next() == JsonEvent.TRUE;
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		return test1;
+	}
+
+	private static List<Object> walkList(final StreamingJsonReader reader) {
+		final List<Object> list = new ArrayList<Object>();
+		JsonEvent event;
+		while ((event = reader.next()) != JsonEvent.END_ARRAY) {
+			list.add(walkAny(reader, event));
+		}
+		return list;
+	}
+
+	private static Object walkAny(final StreamingJsonReader reader,
+			final JsonEvent event) {
+		if (event == JsonEvent.START_OBJECT) {
+			final Map<String, Object> map = new LinkedHashMap<String, Object>();
+			JsonEvent key;
+			while ((key = reader.next()) != JsonEvent.END_OBJECT) {
+				map.put(key.value, walkAny(reader, reader.next()));
+			}
+			return map;
+		} else if (event == JsonEvent.START_ARRAY) {
+			return walkList(reader);
+		} else if (event == JsonEvent.TRUE || event == JsonEvent.FALSE) {
+			return event == JsonEvent.TRUE;
+		} else if (event == JsonEvent.NULL) {
+			return null;
+		} else if (event.type == StreamingJsonReader.JsonEventType.NUMBER) {
+			if (event.fitsInLong()) {
+				return event.getLong();
+			}
+			return event.getDouble();
+		}
+		return event.value;
+	}
+
+	private static Person walkPerson(final StreamingJsonReader reader) {
+		final Person person = new Person();
+		JsonEvent event;
+		while ((event = reader.next()) != JsonEvent.END_OBJECT) {
+			switch (event.value) {
+			case "firstName":
+				person.firstName = reader.next().value;
+				break;
+			case "lastName":
+				person.lastName = reader.next().value;
+				break;
+			case "age":
+				person.age = (int) reader.next().getLong();
+				break;
+			case "address":
+				reader.next();
+				person.address = walkAddress(reader);
+				break;
+			case "phoneNumber":
+				reader.next();
+				person.phoneNumber = new ArrayList<PhoneNumber>();
+				while (reader.next() != JsonEvent.END_ARRAY) {
+					person.phoneNumber.add(walkPhoneNumber(reader));
+				}
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		return person;
+	}
+
+	private static Address walkAddress(final StreamingJsonReader reader) {
+		final Address address = new Address();
+		JsonEvent event;
+		while ((event = reader.next()) != JsonEvent.END_OBJECT) {
+			switch (event.value) {
+			case "streetAddress":
+				address.streetAddress = reader.next().value;
+				break;
+			case "city":
+				address.city = reader.next().value;
+				break;
+			case "state":
+				address.state = reader.next().value;
+				break;
+			case "postalCode":
+				address.postalCode = reader.next().value;
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		return address;
+	}
+
+	private static PhoneNumber walkPhoneNumber(final StreamingJsonReader reader) {
+		String type = null;
+		String number = null;
+		JsonEvent event;
+		while ((event = reader.next()) != JsonEvent.END_OBJECT) {
+			switch (event.value) {
+			case "type":
+				type = reader.next().value;
+				break;
+			case "number":
+				number = reader.next().value;
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		return new PhoneNumber(type, number);
+	}
+
+	private static Problems walkProblems(final StreamingJsonReader reader) {
+		final Problems problems = new Problems();
+		JsonEvent event;
+		while ((event = reader.next()) != JsonEvent.END_OBJECT) {
+			if (event.value.equals("problems")) {
+				reader.next();
+				problems.problems = new ArrayList<Map<String, List<Condition>>>();
+				while (reader.next() != JsonEvent.END_ARRAY) {
+					final Map<String, List<Condition>> conditions = new LinkedHashMap<String, List<Condition>>();
+					JsonEvent key;
+					while ((key = reader.next()) != JsonEvent.END_OBJECT) {
+						reader.next();
+						final List<Condition> list = new ArrayList<Condition>();
+						while (reader.next() != JsonEvent.END_ARRAY) {
+							list.add(walkCondition(reader));
+						}
+						conditions.put(key.value, list);
+					}
+					problems.problems.add(conditions);
+				}
+			} else {
+				reader.skipValue();
+			}
+		}
+		return problems;
+	}
+
+	private static Condition walkCondition(final StreamingJsonReader reader) {
+		final Condition condition = new Condition();
+		JsonEvent event;
+		while ((event = reader.next()) != JsonEvent.END_OBJECT) {
+			switch (event.value) {
+			case "medications":
+				reader.next();
+				condition.medications = new ArrayList<Medication>();
+				while (reader.next() != JsonEvent.END_ARRAY) {
+					condition.medications.add(walkMedication(reader));
+				}
+				break;
+			case "labs":
+				reader.next();
+				condition.labs = new ArrayList<Lab>();
+				while (reader.next() != JsonEvent.END_ARRAY) {
+					final Lab lab = new Lab();
+					JsonEvent key;
+					while ((key = reader.next()) != JsonEvent.END_OBJECT) {
+						if (key.value.equals("a")) {
+							lab.a = reader.next() == JsonEvent.TRUE;
+						} else {
+							reader.skipValue();
+						}
+					}
+					condition.labs.add(lab);
+				}
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		return condition;
+	}
+
+	private static Medication walkMedication(final StreamingJsonReader reader) {
+		final Medication medication = new Medication();
+		JsonEvent event;
+		while ((event = reader.next()) != JsonEvent.END_OBJECT) {
+			if (event.value.equals("medicationsClasses")) {
+				reader.next();
+				medication.medicationsClasses = new ArrayList<Map<String, List<Map<String, List<Drug>>>>>();
+				while (reader.next() != JsonEvent.END_ARRAY) {
+					final Map<String, List<Map<String, List<Drug>>>> classes = new LinkedHashMap<String, List<Map<String, List<Drug>>>>();
+					JsonEvent name;
+					while ((name = reader.next()) != JsonEvent.END_OBJECT) {
+						reader.next();
+						final List<Map<String, List<Drug>>> list = new ArrayList<Map<String, List<Drug>>>();
+						while (reader.next() != JsonEvent.END_ARRAY) {
+							list.add(walkDrugs(reader));
+						}
+						classes.put(name.value, list);
+					}
+					medication.medicationsClasses.add(classes);
+				}
+			} else {
+				reader.skipValue();
+			}
+		}
+		return medication;
+	}
+
+	private static Map<String, List<Drug>> walkDrugs(
+			final StreamingJsonReader reader) {
+		final Map<String, List<Drug>> drugs = new LinkedHashMap<String, List<Drug>>();
+		JsonEvent key;
+		while ((key = reader.next()) != JsonEvent.END_OBJECT) {
+			reader.next();
+			final List<Drug> list = new ArrayList<Drug>();
+			while (reader.next() != JsonEvent.END_ARRAY) {
+				String name = null;
+				String dose = null;
+				String strength = null;
+				JsonEvent event;
+				while ((event = reader.next()) != JsonEvent.END_OBJECT) {
+					switch (event.value) {
+					case "name":
+						name = reader.next().value;
+						break;
+					case "dose":
+						dose = reader.next().value;
+						break;
+					case "strength":
+						strength = reader.next().value;
+						break;
+					default:
+						reader.skipValue();
+					}
+				}
+				list.add(new Drug(name, dose, strength));
+			}
+			drugs.put(key.value, list);
+		}
+		return drugs;
+	}
+
+	public static class Test1 {
+		private String something;
+		private List<Object> another;
+		private boolean pint;
+	}
+
+	public static class Person {
+		private String firstName;
+		private String lastName;
+		private int age;
+		private Address address;
+		private List<PhoneNumber> phoneNumber;
+	}
+
+	public static class Address {
+		private String streetAddress;
+		private String city;
+		private String state;
+		private String postalCode;
+	}
+
+	public record PhoneNumber(String type, String number) {
+	}
+
+	public static class Problems {
+		private List<Map<String, List<Condition>>> problems;
+	}
+
+	public static class Condition {
+		private List<Medication> medications;
+		private List<Lab> labs;
+	}
+
+	public static class Medication {
+		private List<Map<String, List<Map<String, List<Drug>>>>> medicationsClasses;
+	}
+
+	public record Drug(String name, String dose, String strength) {
+	}
+
+	public static class Lab {
+		private boolean a;
+	}
+}
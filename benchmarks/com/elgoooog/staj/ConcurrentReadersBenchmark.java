@@ -0,0 +1,138 @@
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+/**
+ * Time for many threaded readers, all open at once, to read a message that
+ * trickles in over a local pipe a few bytes at a time. Compares a platform
+ * thread per reader, a cached thread pool and, on Java 21 or later with
+ * -p executor=virtual, a virtual thread per reader. Needs two file
+ * descriptors per reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConcurrentReadersBenchmark {
+	private static final byte[] MESSAGE = ("{\"id\":12345,\"type\":\"order\","
+			+ "\"price\":19.99,\"tags\":[\"new\",\"gift\"],"
+			+ "\"customer\":{\"name\":\"Jane\",\"country\":\"NZ\"}}")
+			.getBytes(StandardCharsets.UTF_8);
+	private static final int PIECES = 8;
+	private static final long PIECE_DELAY_MILLIS = 2;
+
+	@Param({ "10000" })
+	public int readers;
+
+	@Param({ "thread", "cached" })
+	public String executor;
+
+	private ExecutorService readerExecutor;
+	private ExecutorService consumers;
+	private StreamingJsonReaderFactory factory;
+	private List<Pipe> pipes;
+
+	@Setup
+	public void setUp() {
+		factory = new StreamingJsonReaderFactory();
+		if (executor.equals("virtual")) {
+			readerExecutor = StreamingJsonReaderFactory
+					.newVirtualThreadExecutor();
+			consumers = StreamingJsonReaderFactory.newVirtualThreadExecutor();
+		} else {
+			readerExecutor = executor.equals("cached") ? Executors
+					.newCachedThreadPool() : null;
+			consumers = Executors.newCachedThreadPool();
+		}
+		factory.setExecutor(readerExecutor);
+	}
+
+	@Setup(Level.Invocation)
+	public void openPipes() throws IOException {
+		pipes = new ArrayList<Pipe>(readers);
+		for (int i = 0; i < readers; ++i) {
+			pipes.add(Pipe.open());
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void closePipes() throws IOException {
+		for (final Pipe pipe : pipes) {
+			pipe.source().close();
+			pipe.sink().close();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (readerExecutor != null) {
+			readerExecutor.shutdownNow();
+		}
+		consumers.shutdownNow();
+	}
+
+	@Benchmark
+	public long readAll() throws Exception {
+		final List<Future<Integer>> results = new ArrayList<Future<Integer>>(
+				readers);
+		for (final Pipe pipe : pipes) {
+			final StreamingJsonReader reader = factory
+					.createStreamingJsonReader(
+							Channels.newInputStream(pipe.source()), 16);
+			results.add(consumers.submit(() -> {
+				int events = 0;
+				while (reader.next() != JsonEvent.END) {
+					++events;
+				}
+				return events;
+			}));
+		}
+
+		// every reader is now blocked on its pipe; feed them all slowly
+		final int pieceSize = (MESSAGE.length + PIECES - 1) / PIECES;
+		for (int offset = 0; offset < MESSAGE.length; offset += pieceSize) {
+			final int length = Math.min(pieceSize, MESSAGE.length - offset);
+			for (final Pipe pipe : pipes) {
+				pipe.sink().write(ByteBuffer.wrap(MESSAGE, offset, length));
+			}
+			Thread.sleep(PIECE_DELAY_MILLIS);
+		}
+		for (final Pipe pipe : pipes) {
+			pipe.sink().close();
+		}
+
+		long events = 0;
+		for (final Future<Integer> result : results) {
+			events += result.get();
+		}
+		return events;
+	}
+}
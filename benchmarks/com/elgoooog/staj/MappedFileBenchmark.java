@@ -0,0 +1,122 @@
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elgoooog.staj.TokenReader.Token;
+
+/**
+ * Time to tokenize a 256 MB file (in the page cache after the first
+ * iteration) through a MappedFileInputStream, as TokenReader(FileChannel)
+ * does, against a plain FileChannel stream. "inPlace" tokenizes the same
+ * bytes from a heap array with no copy at all, the bound on what scanning
+ * the mapping in place could gain; the "drain" pair is the copying alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class MappedFileBenchmark {
+	@Param({ "SMALL_OBJECTS", "LONG_STRINGS", "NUMERIC_ARRAYS" })
+	public BenchmarkCorpus.Shape shape;
+
+	private Path file;
+	private byte[] json;
+
+	@Setup
+	public void setUp() throws IOException {
+		final byte[] chunk = BenchmarkCorpus.generate(shape, 16 << 20);
+		file = Files.createTempFile("staj", ".json");
+		try (final OutputStream out = Files.newOutputStream(file)) {
+			out.write('[');
+			for (int i = 0; i < 16; ++i) {
+				if (i > 0) {
+					out.write(',');
+				}
+				out.write(chunk);
+			}
+			out.write(']');
+		}
+		json = Files.readAllBytes(file);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(file);
+	}
+
+	@Benchmark
+	public long mapped() throws IOException {
+		try (final TokenReader reader = new TokenReader(FileChannel.open(file))) {
+			return countTokens(reader);
+		}
+	}
+
+	@Benchmark
+	public long channel() throws IOException {
+		try (final TokenReader reader = new TokenReader(
+				Channels.newInputStream(FileChannel.open(file)))) {
+			return countTokens(reader);
+		}
+	}
+
+	@Benchmark
+	public long inPlace() throws IOException {
+		return countTokens(new TokenReader(json, 0, json.length));
+	}
+
+	@Benchmark
+	public long drainMapped() throws IOException {
+		try (final FileChannel channel = FileChannel.open(file)) {
+			return drain(new MappedFileInputStream(channel));
+		}
+	}
+
+	@Benchmark
+	public long drainChannel() throws IOException {
+		try (final FileChannel channel = FileChannel.open(file)) {
+			return drain(Channels.newInputStream(channel));
+		}
+	}
+
+	private static long countTokens(final TokenReader reader)
+			throws IOException {
+		long tokens = 0;
+		while (reader.readNext() != Token.END) {
+			++tokens;
+		}
+		return tokens;
+	}
+
+	private static long drain(final InputStream input)
+			throws IOException {
+		final byte[] buffer = new byte[8192];
+		long total = 0;
+		int n;
+		while ((n = input.read(buffer, 0, buffer.length)) > 0) {
+			total += n;
+		}
+		return total;
+	}
+}
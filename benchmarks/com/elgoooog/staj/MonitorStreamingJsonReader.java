@@ -0,0 +1,92 @@
+package com.elgoooog.staj;
+
+import java.io.InputStream;
+import java.util.LinkedList;
+
+public class MonitorStreamingJsonReader extends StreamingJsonReader {
+	private final LinkedList<JsonEvent> jsonEvents;
+	private final TokenReader tokenReader;
+	private final int bufferSize;
+	private volatile boolean done;
+
+	public MonitorStreamingJsonReader(final TokenReader reader,
+			final int eventsToBuffer) {
+		jsonEvents = new LinkedList<>();
+		tokenReader = reader;
+		bufferSize = eventsToBuffer > 1 ? eventsToBuffer : 1;
+		done = false;
+		jsonEvents.add(JsonEvent.START);
+		new ReaderThread().start();
+	}
+
+	@Override
+	public JsonEvent next() {
+		synchronized (this) {
+			while (true) {
+				if (jsonEvents.size() > 0) {
+					final JsonEvent event = jsonEvents.removeFirst();
+					notifyAll();
+					return event;
+				} else if (done) {
+					throw new IllegalStateException(
+							"JsonEvent END has already been sent.  There is nothing left.");
+				} else {
+					doWait();
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean skipValue() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void skipChildren() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void reset(final InputStream is) {
+		throw new UnsupportedOperationException();
+	}
+
+	protected class ReaderThread extends Thread {
+		private final StreamingJsonParser parser = new StreamingJsonParser(
+				tokenReader);
+
+		@Override
+		public void run() {
+			while (!done) {
+				synchronized (MonitorStreamingJsonReader.this) {
+					if (jsonEvents.size() < bufferSize) {
+						try {
+							final JsonEvent event = parser.readNext();
+							if (event == JsonEvent.END) {
+								done = true;
+							}
+
+							jsonEvents.add(event);
+						} finally {
+							MonitorStreamingJsonReader.this.notifyAll();
+						}
+					} else {
+						doWait();
+					}
+				}
+			}
+		}
+	}
+
+	protected void doWait() {
+		while (true) {
+			try {
+				wait();
+				return;
+			} catch (final InterruptedException e) {
+				// keep going
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.elgoooog.staj;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.elgoooog.staj.ParallelNdjsonParser.RecordHandler;
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+/**
+ * Time to read every event of 64 MB of NDJSON with ParallelNdjsonParser, by
+ * number of pool threads. Scaling should follow the core count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class NdjsonBenchmark {
+	private static final RecordHandler<Integer> COUNT_EVENTS = new RecordHandler<Integer>() {
+		@Override
+		public Integer handleRecord(final StreamingJsonReader record) {
+			int events = 0;
+			while (record.next() != JsonEvent.END) {
+				++events;
+			}
+			return events;
+		}
+	};
+
+	@Param({ "SMALL_OBJECTS", "NUMERIC_ARRAYS" })
+	public BenchmarkCorpus.Shape shape;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	@Param({ "false", "true" })
+	public boolean ordered;
+
+	private byte[] json;
+	private ExecutorService executor;
+	private ParallelNdjsonParser parser;
+
+	@Setup
+	public void setUp() {
+		json = BenchmarkCorpus.generateNdjson(shape, 64 << 20);
+		executor = Executors.newFixedThreadPool(threads);
+		parser = new StreamingJsonReaderFactory()
+				.createParallelNdjsonParser(executor);
+		parser.setOrdered(ordered);
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public long parse() throws Exception {
+		final long[] events = new long[1];
+		parser.parse(new ByteArrayInputStream(json), COUNT_EVENTS,
+				count -> events[0] += count);
+		return events[0];
+	}
+}
@@ -0,0 +1,251 @@
+package com.elgoooog.staj;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.elgoooog.staj.BenchmarkCorpus.Shape;
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+import com.elgoooog.staj.TokenReader.Token;
+
+/**
+ * Measures each layer on its own over the corpus shapes. Besides ops/s, the
+ * "megabytes" counter is input MB/s and "allocatedBytesPerItem" is heap
+ * allocated per token or event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+	@Param({ "DEEP_NESTING", "LONG_STRINGS", "NUMERIC_ARRAYS",
+			"SMALL_OBJECTS", "ESCAPED_TEXT" })
+	public Shape shape;
+
+	@Param({ "1048576" })
+	public int size;
+
+	private byte[] json;
+
+	@Setup
+	public void setUp() {
+		json = BenchmarkCorpus.generate(shape, size);
+	}
+
+	@Benchmark
+	public void tokenReader(final Throughput throughput,
+			final Allocation allocation, final Blackhole blackhole)
+			throws IOException {
+		final long allocated = Allocation.allocatedBytes();
+		final TokenReader reader = new TokenReader(new ByteArrayInputStream(
+				json));
+		long items = 0;
+
+		Token token;
+		do {
+			token = reader.readNext();
+			blackhole.consume(token);
+			++items;
+		} while (token != Token.END);
+
+		throughput.add(json.length, items);
+		allocation.add(allocated, items);
+	}
+
+	@Benchmark
+	public void parser(final Throughput throughput,
+			final Allocation allocation, final Blackhole blackhole) {
+		final long allocated = Allocation.allocatedBytes();
+		final StreamingJsonParser parser = new StreamingJsonParser(
+				new TokenReader(new ByteArrayInputStream(json)));
+		long items = 0;
+
+		JsonEvent event;
+		do {
+			event = parser.readNext();
+			blackhole.consume(event);
+			++items;
+		} while (event != JsonEvent.END);
+
+		throughput.add(json.length, items);
+		allocation.add(allocated, items);
+	}
+
+	@Benchmark
+	public void reader(final Throughput throughput,
+			final Allocation allocation, final Blackhole blackhole) {
+		final long allocated = Allocation.allocatedBytes();
+		final StreamingJsonReader reader = new SynchronousStreamingJsonReader(
+				new TokenReader(new ByteArrayInputStream(json)));
+		long items = 0;
+
+		JsonEvent event;
+		do {
+			event = reader.next();
+			blackhole.consume(event);
+			++items;
+		} while (event != JsonEvent.END);
+
+		throughput.add(json.length, items);
+		allocation.add(allocated, items);
+	}
+
+	@Benchmark
+	public void cursor(final Throughput throughput,
+			final Allocation allocation, final Blackhole blackhole) {
+		final long allocated = Allocation.allocatedBytes();
+		final StreamingJsonCursor cursor = new StreamingJsonCursor(
+				new TokenReader(new ByteArrayInputStream(json)));
+		long items = 0;
+
+		while (cursor.hasNext()) {
+			final int event = cursor.next();
+			if (event == StreamingJsonCursor.NUMBER) {
+				if (cursor.fitsInLong()) {
+					blackhole.consume(cursor.getLong());
+				} else {
+					blackhole.consume(cursor.getDouble());
+				}
+			} else if (cursor.hasText()) {
+				blackhole.consume(cursor.getTextLength());
+			}
+			++items;
+		}
+
+		throughput.add(json.length, items);
+		allocation.add(allocated, items);
+	}
+
+	/**
+	 * Only compares string values against a constant, as a filter would, with
+	 * every string decoded.
+	 */
+	@Benchmark
+	public void cursorMatch(final Throughput throughput,
+			final Allocation allocation, final Blackhole blackhole) {
+		match(false, throughput, allocation, blackhole);
+	}
+
+	/**
+	 * The same with lazy strings, compared in the input buffer.
+	 */
+	@Benchmark
+	public void cursorMatchLazy(final Throughput throughput,
+			final Allocation allocation, final Blackhole blackhole) {
+		match(true, throughput, allocation, blackhole);
+	}
+
+	private void match(final boolean lazyStrings,
+			final Throughput throughput, final Allocation allocation,
+			final Blackhole blackhole) {
+		final long allocated = Allocation.allocatedBytes();
+		final StreamingJsonParser parser = new StreamingJsonParser(
+				new TokenReader(new ByteArrayInputStream(json)));
+		parser.setLazyStrings(lazyStrings);
+		final StreamingJsonCursor cursor = new StreamingJsonCursor(parser);
+		long items = 0;
+
+		while (cursor.hasNext()) {
+			if (cursor.next() == StreamingJsonCursor.STRING) {
+				blackhole.consume(cursor.contentEquals("order"));
+			}
+			++items;
+		}
+
+		throughput.add(json.length, items);
+		allocation.add(allocated, items);
+	}
+
+	/**
+	 * Skips every element of the top level array, for comparing input MB/s
+	 * against reader.
+	 */
+	@Benchmark
+	public void readerSkip(final Throughput throughput,
+			final Allocation allocation, final Blackhole blackhole) {
+		final long allocated = Allocation.allocatedBytes();
+		final StreamingJsonReader reader = new SynchronousStreamingJsonReader(
+				new TokenReader(new ByteArrayInputStream(json)));
+		long items = 0;
+
+		blackhole.consume(reader.next());
+		blackhole.consume(reader.next());
+		while (reader.skipValue()) {
+			++items;
+		}
+		blackhole.consume(reader.next());
+
+		throughput.add(json.length, items);
+		allocation.add(allocated, items);
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Throughput {
+		public long bytes;
+		public long items;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+			items = 0;
+		}
+
+		public double megabytes() {
+			return bytes / (1024.0 * 1024.0);
+		}
+
+		void add(final long length, final long count) {
+			bytes += length;
+			items += count;
+		}
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Allocation {
+		private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+
+		private long allocated;
+		private long items;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			allocated = 0;
+			items = 0;
+		}
+
+		public double allocatedBytesPerItem() {
+			return items == 0 ? 0 : (double) allocated / items;
+		}
+
+		void add(final long allocatedBefore, final long count) {
+			allocated += allocatedBytes() - allocatedBefore;
+			items += count;
+		}
+
+		static long allocatedBytes() {
+			return THREADS.getThreadAllocatedBytes(Thread.currentThread()
+					.getId());
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.elgoooog.staj;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+/**
+ * Events/sec through the lookahead thread handoff, comparing the ring buffer
+ * in ThreadedStreamingJsonReader with the old monitor + LinkedList handoff.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderHandoffBenchmark {
+	// START + START_ARRAY + numbers + END_ARRAY + END
+	private static final int EVENTS = 100000;
+
+	@Param({ "1", "64", "4096" })
+	public int bufferSize;
+
+	private byte[] json;
+
+	@Setup
+	public void setUp() {
+		final StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < EVENTS - 4; ++i) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append(i % 1000);
+		}
+		json = builder.append(']').toString()
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void ringBuffer(final Blackhole blackhole) {
+		drain(new ThreadedStreamingJsonReader(newTokenReader(), bufferSize),
+				blackhole);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void monitor(final Blackhole blackhole) {
+		drain(new MonitorStreamingJsonReader(newTokenReader(), bufferSize),
+				blackhole);
+	}
+
+	private TokenReader newTokenReader() {
+		return new TokenReader(new ByteArrayInputStream(json));
+	}
+
+	private static void drain(final StreamingJsonReader reader,
+			final Blackhole blackhole) {
+		JsonEvent event;
+		do {
+			event = reader.next();
+			blackhole.consume(event);
+		} while (event != JsonEvent.END);
+	}
+}
@@ -0,0 +1,87 @@
+package com.elgoooog.staj;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+/**
+ * Latency of parsing one small message end to end, including setting up the
+ * tokenizer and parser, or taking them from a ReaderPool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmallMessageBenchmark {
+	private final byte[] json = ("{\"id\":12345,\"type\":\"order\",\"price\":19.99,"
+			+ "\"quantity\":3,\"express\":false,\"tags\":[\"new\",\"gift\"],"
+			+ "\"customer\":{\"name\":\"Jane\",\"country\":\"NZ\"}}")
+			.getBytes(StandardCharsets.UTF_8);
+	private final StreamingJsonReaderFactory pooled = new StreamingJsonReaderFactory();
+
+	public SmallMessageBenchmark() {
+		pooled.setPool(ReaderPool.threadLocal());
+	}
+
+	@Benchmark
+	public void reader(final Blackhole blackhole) {
+		final StreamingJsonReader reader = new SynchronousStreamingJsonReader(
+				new TokenReader(new ByteArrayInputStream(json)));
+
+		JsonEvent event;
+		do {
+			event = reader.next();
+			blackhole.consume(event);
+		} while (event != JsonEvent.END);
+	}
+
+	@Benchmark
+	public void cursor(final Blackhole blackhole) {
+		final StreamingJsonCursor cursor = new StreamingJsonCursor(
+				new TokenReader(new ByteArrayInputStream(json)));
+
+		while (cursor.hasNext()) {
+			blackhole.consume(cursor.next());
+		}
+	}
+
+	@Benchmark
+	public void pooledReader(final Blackhole blackhole) {
+		final StreamingJsonReader reader = pooled
+				.createSynchronousStreamingJsonReader(new ByteArrayInputStream(
+						json));
+
+		JsonEvent event;
+		do {
+			event = reader.next();
+			blackhole.consume(event);
+		} while (event != JsonEvent.END);
+		pooled.release(reader);
+	}
+
+	@Benchmark
+	public void pooledCursor(final Blackhole blackhole) {
+		final StreamingJsonCursor cursor = pooled
+				.createStreamingJsonCursor(new ByteArrayInputStream(json));
+
+		while (cursor.hasNext()) {
+			blackhole.consume(cursor.next());
+		}
+		pooled.release(cursor);
+	}
+}
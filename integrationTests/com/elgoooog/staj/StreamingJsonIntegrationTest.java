@@ -1,322 +1,892 @@
-package com.elgoooog.staj;
-
-import static org.junit.Assert.assertEquals;
-
-import org.junit.Test;
-
-import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
-import com.elgoooog.staj.StreamingJsonReader.JsonEventType;
-
-public class StreamingJsonIntegrationTest {
-	@Test
-	public void testIt1() {
-		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
-		final StreamingJsonReader reader = factory.createStreamingJsonReader(
-				getClass().getResourceAsStream("test1.json"), 1);
-
-		JsonEvent jsonEvent = reader.next();
-		assertEquals(JsonEvent.START, jsonEvent);
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("something", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("somethingElse", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("another", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("hi", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		assertEquals(JsonEvent.TRUE, reader.next());
-		assertEquals(JsonEvent.NULL, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("hi", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("123", jsonEvent.value);
-		assertEquals(JsonEventType.NUMBER, jsonEvent.type);
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("pint", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.FALSE, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END, reader.next());
-	}
-
-	@Test
-	public void testIt2() {
-		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
-		final StreamingJsonReader reader = factory.createStreamingJsonReader(
-				getClass().getResourceAsStream("test2.json"), 5);
-
-		JsonEvent jsonEvent = reader.next();
-		assertEquals(JsonEvent.START, jsonEvent);
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("firstName", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("John", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("lastName", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("Smith", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("age", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("25", jsonEvent.value);
-		assertEquals(JsonEventType.NUMBER, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("address", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("streetAddress", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("21 2nd Street", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("city", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("New York", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("state", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("NY", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("postalCode", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("10021", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("phoneNumber", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("type", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("home", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("number", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("212 555-1234", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("type", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("fax", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("number", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("646 555-4567", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END, reader.next());
-	}
-
-	@Test
-	public void testIt3() {
-		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
-		final StreamingJsonReader reader = factory.createStreamingJsonReader(
-				getClass().getResourceAsStream("test3.json"), 5);
-
-		JsonEvent jsonEvent = reader.next();
-		assertEquals(JsonEvent.START, jsonEvent);
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("problems", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("Diabetes", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("medications", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("medicationsClasses", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("className", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("associatedDrug", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("name", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("asprin", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("dose", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("strength", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("500 mg", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("associatedDrug#2", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("name", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("somethingElse", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("dose", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("strength", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("500 mg", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("className2", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("associatedDrug", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("name", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("asprin", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("dose", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("strength", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("500 mg", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("associatedDrug#2", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("name", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("somethingElse", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("dose", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("strength", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		jsonEvent = reader.next();
-		assertEquals("500 mg", jsonEvent.value);
-		assertEquals(JsonEventType.STRING, jsonEvent.type);
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("labs", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("a", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.TRUE, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("Asthma", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.START_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		jsonEvent = reader.next();
-		assertEquals("s", jsonEvent.value);
-		assertEquals(JsonEventType.KEY, jsonEvent.type);
-		assertEquals(JsonEvent.START_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END_ARRAY, reader.next());
-		assertEquals(JsonEvent.END_OBJECT, reader.next());
-		assertEquals(JsonEvent.END, reader.next());
-	}
-}
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+import com.elgoooog.staj.StreamingJsonReader.JsonEventType;
+
+public class StreamingJsonIntegrationTest {
+	@Test
+	public void testIt1() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final StreamingJsonReader reader = factory.createStreamingJsonReader(
+				getClass().getResourceAsStream("test1.json"), 1);
+
+		assertTest1(reader);
+	}
+
+	@Test
+	public void testIt1_constructor() {
+		assertTest1(new StreamingJsonReader(new TokenReader(getClass()
+				.getResourceAsStream("test1.json")), 1));
+	}
+
+	@Test
+	public void testIt1_synchronous() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final StreamingJsonReader reader = factory
+				.createSynchronousStreamingJsonReader(getClass()
+						.getResourceAsStream("test1.json"));
+
+		assertTest1(reader);
+	}
+
+	@Test
+	public void testIt2_mappedFile() throws Exception {
+		final Path file = copyToTempFile("test2.json");
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		try (final StreamingJsonReader synchronous = factory
+				.createSynchronousStreamingJsonReader(file);
+				final StreamingJsonReader threaded = factory
+						.createStreamingJsonReader(file, 5)) {
+			assertTest2(synchronous);
+			assertTest2(threaded);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testIt2_mappedFile_closed() throws Exception {
+		final Path file = copyToTempFile("test2.json");
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		try (final FileChannel channel = FileChannel.open(file)) {
+			final StreamingJsonReader reader = factory
+					.createSynchronousStreamingJsonReader(channel);
+			assertTest2(reader);
+			reader.close();
+			assertFalse(channel.isOpen());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testIt3_mappedFile_smallWindows() throws Exception {
+		final Path file = copyToTempFile("test3.json");
+		try (final FileChannel channel = FileChannel.open(file)) {
+			final TokenReader tokenReader = new TokenReader(
+					new MappedFileInputStream(channel, 7));
+
+			assertTest3(new StreamingJsonReaderFactory()
+					.createSynchronousStreamingJsonReader(tokenReader));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testIt2_keySymbolTable() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final KeySymbolTable table = new KeySymbolTable(64);
+		factory.setKeySymbolTable(table);
+
+		final List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 2; ++i) {
+			final StreamingJsonReader reader = factory
+					.createSynchronousStreamingJsonReader(getClass()
+							.getResourceAsStream("test2.json"));
+			JsonEvent jsonEvent;
+			do {
+				jsonEvent = reader.next();
+				if (jsonEvent.type == JsonEventType.KEY) {
+					keys.add(jsonEvent.value);
+				}
+			} while (jsonEvent != JsonEvent.END);
+		}
+
+		final int perDocument = keys.size() / 2;
+		for (int i = 0; i < perDocument; ++i) {
+			assertSame(keys.get(i), keys.get(i + perDocument));
+		}
+		assertEquals(11, table.size());
+		assertEquals(11, table.getMisses());
+		assertEquals(keys.size() - 11, table.getHits());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIt1_synchronous_nextAfterEnd() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final StreamingJsonReader reader = factory
+				.createSynchronousStreamingJsonReader(getClass()
+						.getResourceAsStream("test1.json"));
+
+		assertTest1(reader);
+		reader.next();
+	}
+
+	@Test
+	public void testThreaded_wrapsBuffer() {
+		final StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < 10000; ++i) {
+			builder.append(i).append(',');
+		}
+		final String json = builder.append("{}]").toString();
+
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		for (final int eventsToBuffer : new int[] { 1, 3, 64 }) {
+			final StreamingJsonReader threaded = factory
+					.createStreamingJsonReader(new StringReader(json),
+							eventsToBuffer);
+			final StreamingJsonReader synchronous = factory
+					.createSynchronousStreamingJsonReader(new StringReader(
+							json));
+
+			JsonEvent expected;
+			do {
+				expected = synchronous.next();
+				final JsonEvent actual = threaded.next();
+				assertEquals(expected.type, actual.type);
+				assertEquals(expected.value, actual.value);
+			} while (expected != JsonEvent.END);
+		}
+	}
+
+	@Test
+	public void testThreaded_executor() throws Exception {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final ExecutorService executor = Executors.newCachedThreadPool();
+		factory.setExecutor(executor);
+		try {
+			// more readers open at once than a small fixed pool could run
+			final List<StreamingJsonReader> readers = new ArrayList<StreamingJsonReader>();
+			for (int i = 0; i < 100; ++i) {
+				readers.add(factory.createStreamingJsonReader(new StringReader(
+						"[" + i + ",{\"a\":true}]"), 2));
+			}
+			for (int i = 0; i < readers.size(); ++i) {
+				final StreamingJsonReader reader = readers.get(i);
+				assertEquals(JsonEvent.START, reader.next());
+				assertEquals(JsonEvent.START_ARRAY, reader.next());
+				assertEquals(String.valueOf(i), reader.next().value);
+				reader.skipValue();
+				assertEquals(JsonEvent.END_ARRAY, reader.next());
+				assertEquals(JsonEvent.END, reader.next());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testThreaded_parseError() {
+		final StreamingJsonReader reader = new StreamingJsonReaderFactory()
+				.createStreamingJsonReader(new StringReader("[1, 2 3]"), 8);
+
+		assertEquals(JsonEvent.START, reader.next());
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals("1", reader.next().value);
+		assertEquals("2", reader.next().value);
+		try {
+			reader.next();
+			fail("Expected a JsonParseException");
+		} catch (final JsonParseException e) {
+			assertEquals(
+					"Illegal state:  Expected comma or Close Bracket, not found",
+					e.getMessage());
+		}
+
+		// a failed reader can start over like a finished one
+		reader.reset(new ByteArrayInputStream("[3]"
+				.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(JsonEvent.START, reader.next());
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals("3", reader.next().value);
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END, reader.next());
+	}
+
+	@Test
+	public void testVirtualThreadExecutor() {
+		try {
+			StreamingJsonReaderFactory.newVirtualThreadExecutor().shutdown();
+			assertTrue(Runtime.version().feature() >= 21);
+		} catch (final UnsupportedOperationException e) {
+			assertTrue(Runtime.version().feature() < 21);
+		}
+	}
+
+	@Test
+	public void testIt2_skip() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+
+		assertSkipTest2(factory.createStreamingJsonReader(getClass()
+				.getResourceAsStream("test2.json"), 5));
+		assertSkipTest2(factory.createSynchronousStreamingJsonReader(getClass()
+				.getResourceAsStream("test2.json")));
+	}
+
+	@Test
+	public void testIt3_skipValue() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+
+		for (final StreamingJsonReader reader : new StreamingJsonReader[] {
+				factory.createStreamingJsonReader(getClass()
+						.getResourceAsStream("test3.json"), 5),
+				factory.createSynchronousStreamingJsonReader(getClass()
+						.getResourceAsStream("test3.json")) }) {
+			assertEquals(true, reader.skipValue());
+			assertEquals(false, reader.skipValue());
+			assertEquals(JsonEvent.END, reader.next());
+		}
+	}
+
+	@Test
+	public void testIt2_projection() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setProjection(new JsonPathProjection("$.address.city",
+				"$.phoneNumber[*].number"));
+
+		assertProjectionTest2(factory.createStreamingJsonReader(getClass()
+				.getResourceAsStream("test2.json"), 5));
+		assertProjectionTest2(factory
+				.createSynchronousStreamingJsonReader(getClass()
+						.getResourceAsStream("test2.json")));
+	}
+
+	@Test
+	public void testMultipleDocuments() {
+		final String json = "{\"id\":1,\"x\":[true]}{\"id\":2} [3]";
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setMultipleDocuments(true);
+
+		final String all = "[start, startObj, key:id, number:1, key:x, startArr,"
+				+ " true, endArr, endObj, endDoc, startObj, key:id, number:2,"
+				+ " endObj, endDoc, startArr, number:3, endArr, endDoc, end]";
+		assertEquals(all, events(factory.createStreamingJsonReader(
+				new StringReader(json), 4)));
+		assertEquals(all, events(factory
+				.createSynchronousStreamingJsonReader(new StringReader(json))));
+
+		factory.setProjection(new JsonPathProjection("$.id"));
+		assertEquals("[start, startObj, key:id, number:1, endObj, endDoc,"
+				+ " startObj, key:id, number:2, endObj, endDoc, startArr,"
+				+ " endArr, endDoc, end]", events(factory
+				.createStreamingJsonReader(new StringReader(json), 4)));
+	}
+
+	@Test
+	public void testIt3_batched() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final String expected = events(factory
+				.createSynchronousStreamingJsonReader(getClass()
+						.getResourceAsStream("test3.json")));
+
+		for (final int eventsToBuffer : new int[] { 1, 7, 1024 }) {
+			final StreamingJsonReader reader = factory
+					.createStreamingJsonReader(getClass().getResourceAsStream(
+							"test3.json"), eventsToBuffer);
+			final List<JsonEvent> events = new ArrayList<JsonEvent>();
+			final JsonEvent[] batch = new JsonEvent[5];
+			do {
+				final int count = reader.next(batch);
+				assertTrue(count > 0 && count <= batch.length);
+				events.addAll(Arrays.asList(batch).subList(0, count));
+			} while (events.get(events.size() - 1) != JsonEvent.END);
+			assertEquals(expected, events.toString());
+		}
+
+		final StreamingJsonReader reader = factory.createStreamingJsonReader(
+				getClass().getResourceAsStream("test3.json"), 64);
+		final List<JsonEvent> events = new ArrayList<JsonEvent>();
+		while (events.isEmpty()
+				|| events.get(events.size() - 1) != JsonEvent.END) {
+			reader.drainTo(events, 10);
+		}
+		assertEquals(expected, events.toString());
+	}
+
+	@Test
+	public void testThreaded_publishedBeforeBlocking() throws Exception {
+		final PipedOutputStream out = new PipedOutputStream();
+		final StreamingJsonReader reader = new StreamingJsonReaderFactory()
+				.createStreamingJsonReader(new PipedInputStream(out), 1024);
+		out.write("[1,2,".getBytes(StandardCharsets.UTF_8));
+		out.flush();
+
+		// the parser is blocked on the pipe, but what it parsed is readable
+		final ExecutorService consumer = Executors.newSingleThreadExecutor();
+		try {
+			final Future<String> parsed = consumer.submit(() -> {
+				final List<JsonEvent> events = new ArrayList<JsonEvent>();
+				while (events.size() < 4) {
+					reader.drainTo(events, 4 - events.size());
+				}
+				return events.toString();
+			});
+			assertEquals("[start, startArr, number:1, number:2]", parsed.get(
+					10, TimeUnit.SECONDS));
+		} finally {
+			consumer.shutdownNow();
+		}
+
+		out.write("3]".getBytes(StandardCharsets.UTF_8));
+		out.close();
+		assertEquals("[number:3, endArr, end]", events(reader));
+	}
+
+	@Test
+	public void testIt2_binder() {
+		final Person person = new StreamingJsonReaderFactory()
+				.createJsonBinder().read(
+						getClass().getResourceAsStream("test2.json"),
+						Person.class);
+
+		assertEquals("John", person.firstName);
+		assertEquals("Smith", person.lastName);
+		assertEquals(25, person.age);
+		assertEquals("21 2nd Street", person.address.streetAddress);
+		assertEquals("New York", person.address.city);
+		assertEquals("NY", person.address.state);
+		assertEquals("10021", person.address.postalCode);
+		assertEquals(Arrays.asList(new PhoneNumber("home", "212 555-1234"),
+				new PhoneNumber("fax", "646 555-4567")), person.phoneNumber);
+	}
+
+	@Test
+	public void testIt3_binder() {
+		final Problems problems = new StreamingJsonReaderFactory()
+				.createJsonBinder().read(
+						getClass().getResourceAsStream("test3.json"),
+						Problems.class);
+
+		assertEquals(1, problems.problems.size());
+		final Map<String, List<Condition>> conditions = problems.problems
+				.get(0);
+		assertEquals("[Diabetes, Asthma, s]", conditions.keySet().toString());
+
+		final Condition diabetes = conditions.get("Diabetes").get(0);
+		final Map<String, List<Map<String, List<Drug>>>> classes = diabetes.medications
+				.get(0).medicationsClasses.get(0);
+		assertEquals("[className, className2]", classes.keySet().toString());
+		for (final List<Map<String, List<Drug>>> drugs : classes.values()) {
+			assertEquals(Arrays.asList(new Drug("asprin", "", "500 mg")),
+					drugs.get(0).get("associatedDrug"));
+			assertEquals(Arrays.asList(new Drug("somethingElse", "",
+					"500 mg")), drugs.get(0).get("associatedDrug#2"));
+		}
+		assertTrue(diabetes.labs.get(0).a);
+
+		final Condition asthma = conditions.get("Asthma").get(0);
+		assertNull(asthma.medications);
+		assertNull(asthma.labs);
+		assertTrue(conditions.get("s").isEmpty());
+	}
+
+	@Test
+	public void testThreaded_resetRightAfterEnd() throws Exception {
+		// slow to let go of the fill listener, so that a reset right after
+		// END starts the next ReaderTask before the last one has finished
+		final TokenReader tokenReader = new TokenReader(new StringReader("[0]")) {
+			@Override
+			protected void setFillListener(final Runnable fillListener) {
+				if (fillListener == null) {
+					try {
+						Thread.sleep(20);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				super.setFillListener(fillListener);
+			}
+		};
+		final StreamingJsonReader reader = new ThreadedStreamingJsonReader(
+				tokenReader, 1024);
+		assertEquals("[start, startArr, number:0, endArr, end]",
+				events(reader));
+
+		final ExecutorService consumer = Executors.newSingleThreadExecutor();
+		try {
+			for (int i = 0; i < 3; ++i) {
+				final PipedOutputStream out = new PipedOutputStream();
+				reader.reset(new PipedInputStream(out));
+				// until the last ReaderTask is done, then these events are
+				// only published before the next fill
+				Thread.sleep(50);
+				out.write("[1,2,".getBytes(StandardCharsets.UTF_8));
+				out.flush();
+
+				final Future<String> parsed = consumer.submit(() -> {
+					final List<JsonEvent> events = new ArrayList<JsonEvent>();
+					while (events.size() < 4) {
+						reader.drainTo(events, 4 - events.size());
+					}
+					return events.toString();
+				});
+				assertEquals("[start, startArr, number:1, number:2]",
+						parsed.get(10, TimeUnit.SECONDS));
+
+				out.write("3]".getBytes(StandardCharsets.UTF_8));
+				out.close();
+				assertEquals("[number:3, endArr, end]", events(reader));
+			}
+		} finally {
+			consumer.shutdownNow();
+		}
+	}
+
+	private static String events(final StreamingJsonReader reader) {
+		final List<JsonEvent> events = new ArrayList<JsonEvent>();
+		JsonEvent event;
+		do {
+			event = reader.next();
+			events.add(event);
+		} while (event != JsonEvent.END);
+		return events.toString();
+	}
+
+	private void assertProjectionTest2(final StreamingJsonReader reader) {
+		assertEquals(JsonEvent.START, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		assertEquals("address", reader.next().value);
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		assertEquals("city", reader.next().value);
+		assertEquals("New York", reader.next().value);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals("phoneNumber", reader.next().value);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		for (final String number : new String[] { "212 555-1234",
+				"646 555-4567" }) {
+			assertEquals(JsonEvent.START_OBJECT, reader.next());
+			assertEquals("number", reader.next().value);
+			assertEquals(number, reader.next().value);
+			assertEquals(JsonEvent.END_OBJECT, reader.next());
+		}
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END, reader.next());
+	}
+
+	private void assertSkipTest2(final StreamingJsonReader reader) {
+		assertEquals(JsonEvent.START, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		assertEquals("firstName", reader.next().value);
+		assertEquals(true, reader.skipValue());
+		assertEquals("lastName", reader.next().value);
+		assertEquals("Smith", reader.next().value);
+		assertEquals("age", reader.next().value);
+		assertEquals(true, reader.skipValue());
+		assertEquals("address", reader.next().value);
+		assertEquals(true, reader.skipValue());
+		assertEquals("phoneNumber", reader.next().value);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(true, reader.skipValue());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		assertEquals("type", reader.next().value);
+		assertEquals("fax", reader.next().value);
+		reader.skipChildren();
+		assertEquals(false, reader.skipValue());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		reader.skipChildren();
+		assertEquals(JsonEvent.END, reader.next());
+	}
+
+	private Path copyToTempFile(final String resource) throws Exception {
+		final Path file = Files.createTempFile("staj", ".json");
+		try (final InputStream is = getClass().getResourceAsStream(resource)) {
+			Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+
+	private void assertTest1(final StreamingJsonReader reader) {
+		JsonEvent jsonEvent = reader.next();
+		assertEquals(JsonEvent.START, jsonEvent);
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("something", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("somethingElse", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("another", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("hi", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		assertEquals(JsonEvent.TRUE, reader.next());
+		assertEquals(JsonEvent.NULL, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("hi", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("123", jsonEvent.value);
+		assertEquals(JsonEventType.NUMBER, jsonEvent.type);
+		assertEquals(123, jsonEvent.getLong());
+		assertEquals(123.0, jsonEvent.getDouble(), 0);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("pint", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.FALSE, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END, reader.next());
+	}
+
+	@Test
+	public void testIt2() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final StreamingJsonReader reader = factory.createStreamingJsonReader(
+				getClass().getResourceAsStream("test2.json"), 5);
+
+		assertTest2(reader);
+	}
+
+	@Test
+	public void testIt2_synchronous() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final StreamingJsonReader reader = factory
+				.createSynchronousStreamingJsonReader(getClass()
+						.getResourceAsStream("test2.json"));
+
+		assertTest2(reader);
+	}
+
+	private void assertTest2(final StreamingJsonReader reader) {
+		JsonEvent jsonEvent = reader.next();
+		assertEquals(JsonEvent.START, jsonEvent);
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("firstName", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("John", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("lastName", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("Smith", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("age", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("25", jsonEvent.value);
+		assertEquals(JsonEventType.NUMBER, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("address", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("streetAddress", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("21 2nd Street", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("city", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("New York", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("state", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("NY", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("postalCode", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("10021", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("phoneNumber", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("type", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("home", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("number", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("212 555-1234", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("type", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("fax", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("number", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("646 555-4567", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END, reader.next());
+	}
+
+	@Test
+	public void testIt3() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final StreamingJsonReader reader = factory.createStreamingJsonReader(
+				getClass().getResourceAsStream("test3.json"), 5);
+
+		assertTest3(reader);
+	}
+
+	@Test
+	public void testIt3_synchronous() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final StreamingJsonReader reader = factory
+				.createSynchronousStreamingJsonReader(getClass()
+						.getResourceAsStream("test3.json"));
+
+		assertTest3(reader);
+	}
+
+	private void assertTest3(final StreamingJsonReader reader) {
+		JsonEvent jsonEvent = reader.next();
+		assertEquals(JsonEvent.START, jsonEvent);
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("problems", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("Diabetes", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("medications", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("medicationsClasses", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("className", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("associatedDrug", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("name", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("asprin", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("dose", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("strength", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("500 mg", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("associatedDrug#2", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("name", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("somethingElse", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("dose", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("strength", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("500 mg", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("className2", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("associatedDrug", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("name", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("asprin", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("dose", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("strength", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("500 mg", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("associatedDrug#2", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("name", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("somethingElse", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("dose", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("strength", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		jsonEvent = reader.next();
+		assertEquals("500 mg", jsonEvent.value);
+		assertEquals(JsonEventType.STRING, jsonEvent.type);
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("labs", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("a", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.TRUE, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("Asthma", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		jsonEvent = reader.next();
+		assertEquals("s", jsonEvent.value);
+		assertEquals(JsonEventType.KEY, jsonEvent.type);
+		assertEquals(JsonEvent.START_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END_ARRAY, reader.next());
+		assertEquals(JsonEvent.END_OBJECT, reader.next());
+		assertEquals(JsonEvent.END, reader.next());
+	}
+
+	private static class Person {
+		private String firstName;
+		private String lastName;
+		private int age;
+		private Address address;
+		private List<PhoneNumber> phoneNumber;
+	}
+
+	private static class Address {
+		private String streetAddress;
+		private String city;
+		private String state;
+		private String postalCode;
+	}
+
+	private record PhoneNumber(String type, String number) {
+	}
+
+	private static class Problems {
+		private List<Map<String, List<Condition>>> problems;
+	}
+
+	private static class Condition {
+		private List<Medication> medications;
+		private List<Lab> labs;
+	}
+
+	private static class Medication {
+		private List<Map<String, List<Map<String, List<Drug>>>>> medicationsClasses;
+	}
+
+	private record Drug(String name, String dose, String strength) {
+	}
+
+	private static class Lab {
+		private boolean a;
+	}
+}
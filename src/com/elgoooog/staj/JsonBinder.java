@@ -0,0 +1,991 @@
+package com.elgoooog.staj;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Binds JSON from a StreamingJsonCursor to objects through their non-static,
+ * non-transient, non-final fields, or to records through their canonical
+ * constructor. Bindings are built from MethodHandles once per class.
+ */
+public class JsonBinder {
+	// how a property is written: the integral kinds share a long setter and
+	// the floating point ones a double setter
+	private static final int BOOLEAN = 0;
+	private static final int BYTE = 1;
+	private static final int SHORT = 2;
+	private static final int INT = 3;
+	private static final int LONG = 4;
+	private static final int FLOAT = 5;
+	private static final int DOUBLE = 6;
+	private static final int REFERENCE = 7;
+
+	// indexed by kind
+	private static final Class<?>[] PRIMITIVES = { boolean.class, byte.class,
+			short.class, int.class, long.class, float.class, double.class };
+	private static final Class<?>[] WRAPPERS = { Boolean.class, Byte.class,
+			Short.class, Integer.class, Long.class, Float.class, Double.class };
+	private static final long[] MIN_VALUES = { 0, Byte.MIN_VALUE,
+			Short.MIN_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE };
+	private static final long[] MAX_VALUES = { 0, Byte.MAX_VALUE,
+			Short.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE };
+
+	// indexed by StreamingJsonCursor event code
+	private static final String[] EVENT_NAMES = { "the start", "the end",
+			"an object", "the end of an object", "an array",
+			"the end of an array", "a key", "a string", "a number", "true",
+			"false", "null", "the end of a document" };
+
+	private static final MethodHandle LONG_BITS_TO_DOUBLE;
+
+	static {
+		try {
+			LONG_BITS_TO_DOUBLE = MethodHandles.publicLookup().findStatic(
+					Double.class, "longBitsToDouble",
+					MethodType.methodType(double.class, long.class));
+		} catch (final ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static final ClassValue<Binding> BINDINGS = new ClassValue<Binding>() {
+		@Override
+		protected Binding computeValue(final Class<?> type) {
+			return newBinding(type);
+		}
+	};
+
+	private final StreamingJsonReaderFactory factory;
+
+	public JsonBinder() {
+		this(new StreamingJsonReaderFactory());
+	}
+
+	public JsonBinder(final StreamingJsonReaderFactory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Binds the first root value. What follows it is left unread, as is the
+	 * rest of the stream, which is not closed.
+	 */
+	public <T> T read(final InputStream is, final Class<T> type) {
+		final StreamingJsonCursor cursor = factory
+				.createStreamingJsonCursor(is);
+		try {
+			return readDocument(cursor, type);
+		} finally {
+			factory.release(cursor);
+		}
+	}
+
+	public <T> T read(final byte[] json, final Class<T> type) {
+		final StreamingJsonCursor cursor = factory
+				.createStreamingJsonCursor(json);
+		try {
+			return readDocument(cursor, type);
+		} finally {
+			factory.release(cursor);
+		}
+	}
+
+	/**
+	 * Binds the value starting at the cursor's current event, leaving the
+	 * cursor on its last event.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T read(final StreamingJsonCursor cursor, final Class<T> type) {
+		return (T) BINDINGS.get(type).read(cursor);
+	}
+
+	private <T> T readDocument(final StreamingJsonCursor cursor,
+			final Class<T> type) {
+		cursor.next();
+		final T value = read(cursor, type);
+		// END, checked to end the input only with strict end, or END_DOCUMENT
+		// with any further documents left unread
+		cursor.next();
+		return value;
+	}
+
+	private static Binding bindingFor(final Type type) {
+		if (type instanceof Class) {
+			return BINDINGS.get((Class<?>) type);
+		} else if (type instanceof ParameterizedType) {
+			final Class<?> raw = (Class<?>) ((ParameterizedType) type)
+					.getRawType();
+			final Type[] arguments = ((ParameterizedType) type)
+					.getActualTypeArguments();
+			if (Collection.class.isAssignableFrom(raw)) {
+				return new CollectionBinding(raw, arguments[0]);
+			} else if (Map.class.isAssignableFrom(raw)) {
+				return new MapBinding(raw, arguments[0], arguments[1]);
+			}
+			return BINDINGS.get(raw);
+		} else if (type instanceof GenericArrayType) {
+			final Type component = ((GenericArrayType) type)
+					.getGenericComponentType();
+			return new ArrayBinding(rawClass(component),
+					bindingFor(component));
+		} else if (type instanceof WildcardType) {
+			return bindingFor(((WildcardType) type).getUpperBounds()[0]);
+		} else if (type instanceof TypeVariable) {
+			return bindingFor(((TypeVariable<?>) type).getBounds()[0]);
+		}
+		throw new UnsupportedOperationException("Unsupported type: " + type);
+	}
+
+	private static Binding newBinding(final Class<?> type) {
+		final int kind = kindOf(type);
+		if (kind != REFERENCE) {
+			return new PrimitiveBinding(kind, false);
+		}
+		for (int i = 0; i < WRAPPERS.length; ++i) {
+			if (type == WRAPPERS[i]) {
+				return new PrimitiveBinding(i, true);
+			}
+		}
+
+		if (type == String.class) {
+			return JsonBinder::readString;
+		} else if (type == Object.class) {
+			return JsonBinder::readAny;
+		} else if (type == BigDecimal.class) {
+			return JsonBinder::readBigDecimal;
+		} else if (type == BigInteger.class) {
+			return JsonBinder::readBigInteger;
+		} else if (type.isEnum()) {
+			return new EnumBinding(type);
+		} else if (type.isArray()) {
+			final Class<?> component = type.getComponentType();
+			return component.isPrimitive() ? new PrimitiveArrayBinding(
+					component) : new ArrayBinding(component,
+					bindingFor(component));
+		} else if (Collection.class.isAssignableFrom(type)) {
+			return new CollectionBinding(type, Object.class);
+		} else if (Map.class.isAssignableFrom(type)) {
+			return new MapBinding(type, String.class, Object.class);
+		} else if (type.isInterface()
+				|| Modifier.isAbstract(type.getModifiers())) {
+			throw new UnsupportedOperationException(
+					"Cannot bind to an abstract type: " + type.getName());
+		}
+
+		final MethodHandles.Lookup lookup;
+		try {
+			lookup = MethodHandles.privateLookupIn(type,
+					MethodHandles.lookup());
+		} catch (final IllegalAccessException e) {
+			throw new UnsupportedOperationException("Cannot bind to "
+					+ type.getName(), e);
+		}
+		return type.isRecord() ? new RecordBinding(type, lookup,
+				type.getRecordComponents()) : new FieldBinding(type, lookup);
+	}
+
+	private static int kindOf(final Class<?> type) {
+		for (int i = 0; i < PRIMITIVES.length; ++i) {
+			if (type == PRIMITIVES[i]) {
+				return i;
+			}
+		}
+		if (type.isPrimitive()) {
+			throw new UnsupportedOperationException("Unsupported type: "
+					+ type);
+		}
+		return REFERENCE;
+	}
+
+	private static Class<?> rawClass(final Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		} else if (type instanceof GenericArrayType) {
+			return Array.newInstance(
+					rawClass(((GenericArrayType) type)
+							.getGenericComponentType()), 0).getClass();
+		}
+		return Object.class;
+	}
+
+	/**
+	 * A no-argument constructor returning Object, for the type or, if it is
+	 * abstract, the first of the defaults it can hold.
+	 */
+	private static MethodHandle constructorFor(final Class<?> type,
+			final Class<?>... defaults) {
+		Class<?> instantiated = type;
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			instantiated = null;
+			for (final Class<?> candidate : defaults) {
+				if (type.isAssignableFrom(candidate)) {
+					instantiated = candidate;
+					break;
+				}
+			}
+			if (instantiated == null) {
+				throw new UnsupportedOperationException(
+						"Cannot bind to an abstract type: " + type.getName());
+			}
+		}
+
+		try {
+			return MethodHandles
+					.publicLookup()
+					.findConstructor(instantiated,
+							MethodType.methodType(void.class))
+					.asType(MethodType.methodType(Object.class));
+		} catch (final ReflectiveOperationException e) {
+			throw new UnsupportedOperationException(
+					"No public no-argument constructor: " + type.getName(), e);
+		}
+	}
+
+	private static boolean readBoolean(final StreamingJsonCursor cursor,
+			final String target) {
+		final int event = cursor.getEventType();
+		if (event == StreamingJsonCursor.TRUE) {
+			return true;
+		} else if (event == StreamingJsonCursor.FALSE) {
+			return false;
+		}
+		throw mismatch(cursor, target);
+	}
+
+	private static long readIntegral(final StreamingJsonCursor cursor,
+			final int kind, final String target) {
+		if (cursor.getEventType() != StreamingJsonCursor.NUMBER) {
+			throw mismatch(cursor, target);
+		} else if (cursor.fitsInLong()) {
+			final long value = cursor.getLong();
+			if (value >= MIN_VALUES[kind] && value <= MAX_VALUES[kind]) {
+				return value;
+			}
+		}
+		throw new JsonParseException("Cannot bind " + cursor.getText()
+				+ " to " + target);
+	}
+
+	private static double readDouble(final StreamingJsonCursor cursor,
+			final String target) {
+		if (cursor.getEventType() != StreamingJsonCursor.NUMBER) {
+			throw mismatch(cursor, target);
+		}
+		return cursor.getDouble();
+	}
+
+	private static Object readString(final StreamingJsonCursor cursor) {
+		final int event = cursor.getEventType();
+		if (event == StreamingJsonCursor.STRING) {
+			return cursor.getText();
+		} else if (event == StreamingJsonCursor.NULL) {
+			return null;
+		}
+		throw mismatch(cursor, "String");
+	}
+
+	private static Object readBigDecimal(final StreamingJsonCursor cursor) {
+		final int event = cursor.getEventType();
+		if (event == StreamingJsonCursor.NUMBER) {
+			return cursor.getBigDecimal();
+		} else if (event == StreamingJsonCursor.NULL) {
+			return null;
+		}
+		throw mismatch(cursor, "BigDecimal");
+	}
+
+	private static Object readBigInteger(final StreamingJsonCursor cursor) {
+		final int event = cursor.getEventType();
+		if (event == StreamingJsonCursor.NUMBER) {
+			try {
+				return cursor.getBigDecimal().toBigIntegerExact();
+			} catch (final ArithmeticException e) {
+				throw new JsonParseException("Cannot bind " + cursor.getText()
+						+ " to BigInteger");
+			}
+		} else if (event == StreamingJsonCursor.NULL) {
+			return null;
+		}
+		throw mismatch(cursor, "BigInteger");
+	}
+
+	/**
+	 * Whatever the JSON holds: integers within long range become Longs and
+	 * other numbers Doubles.
+	 */
+	private static Object readAny(final StreamingJsonCursor cursor) {
+		switch (cursor.getEventType()) {
+		case StreamingJsonCursor.START_OBJECT:
+			final Map<String, Object> map = new LinkedHashMap<String, Object>();
+			while (cursor.next() == StreamingJsonCursor.KEY) {
+				final String key = cursor.getText();
+				cursor.next();
+				map.put(key, readAny(cursor));
+			}
+			return map;
+		case StreamingJsonCursor.START_ARRAY:
+			final List<Object> list = new ArrayList<Object>();
+			while (cursor.next() != StreamingJsonCursor.END_ARRAY) {
+				list.add(readAny(cursor));
+			}
+			return list;
+		case StreamingJsonCursor.STRING:
+			return cursor.getText();
+		case StreamingJsonCursor.NUMBER:
+			if (cursor.fitsInLong()) {
+				return Long.valueOf(cursor.getLong());
+			}
+			return Double.valueOf(cursor.getDouble());
+		case StreamingJsonCursor.TRUE:
+			return Boolean.TRUE;
+		case StreamingJsonCursor.FALSE:
+			return Boolean.FALSE;
+		case StreamingJsonCursor.NULL:
+			return null;
+		default:
+			throw mismatch(cursor, "Object");
+		}
+	}
+
+	private static void requireArray(final StreamingJsonCursor cursor,
+			final String target) {
+		if (cursor.getEventType() != StreamingJsonCursor.START_ARRAY) {
+			throw mismatch(cursor, target);
+		}
+	}
+
+	private static void requireObject(final StreamingJsonCursor cursor,
+			final String target) {
+		if (cursor.getEventType() != StreamingJsonCursor.START_OBJECT) {
+			throw mismatch(cursor, target);
+		}
+	}
+
+	private static JsonParseException mismatch(
+			final StreamingJsonCursor cursor, final String target) {
+		return new JsonParseException("Cannot bind "
+				+ EVENT_NAMES[cursor.getEventType()] + " to " + target);
+	}
+
+	private static RuntimeException rethrow(final Throwable t) {
+		if (t instanceof RuntimeException) {
+			return (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		}
+		return new RuntimeException(t);
+	}
+
+	private interface Binding {
+		Object read(StreamingJsonCursor cursor);
+	}
+
+	private static class PrimitiveBinding implements Binding {
+		private final int kind;
+		private final boolean nullable;
+		private final String target;
+
+		private PrimitiveBinding(final int kind, final boolean nullable) {
+			this.kind = kind;
+			this.nullable = nullable;
+			target = (nullable ? WRAPPERS[kind] : PRIMITIVES[kind])
+					.getSimpleName();
+		}
+
+		@Override
+		public Object read(final StreamingJsonCursor cursor) {
+			if (cursor.getEventType() == StreamingJsonCursor.NULL) {
+				if (nullable) {
+					return null;
+				}
+				throw mismatch(cursor, target);
+			}
+
+			switch (kind) {
+			case BOOLEAN:
+				return Boolean.valueOf(readBoolean(cursor, target));
+			case BYTE:
+				return Byte.valueOf((byte) readIntegral(cursor, kind, target));
+			case SHORT:
+				return Short
+						.valueOf((short) readIntegral(cursor, kind, target));
+			case INT:
+				return Integer
+						.valueOf((int) readIntegral(cursor, kind, target));
+			case LONG:
+				return Long.valueOf(readIntegral(cursor, kind, target));
+			case FLOAT:
+				return Float.valueOf((float) readDouble(cursor, target));
+			default:
+				return Double.valueOf(readDouble(cursor, target));
+			}
+		}
+	}
+
+	private static class EnumBinding implements Binding {
+		private final Object[] constants;
+		private final KeyTable names;
+		private final String target;
+
+		private EnumBinding(final Class<?> type) {
+			constants = type.getEnumConstants();
+			final String[] keys = new String[constants.length];
+			for (int i = 0; i < constants.length; ++i) {
+				keys[i] = ((Enum<?>) constants[i]).name();
+			}
+			names = KeyTable.build(keys);
+			target = type.getSimpleName();
+		}
+
+		@Override
+		public Object read(final StreamingJsonCursor cursor) {
+			final int event = cursor.getEventType();
+			if (event == StreamingJsonCursor.NULL) {
+				return null;
+			} else if (event != StreamingJsonCursor.STRING) {
+				throw mismatch(cursor, target);
+			}
+
+			final int index = names.find(cursor.getTextCharacters(),
+					cursor.getTextOffset(), cursor.getTextLength());
+			if (index == -1) {
+				throw new JsonParseException("No " + target + " constant "
+						+ cursor.getText());
+			}
+			return constants[index];
+		}
+	}
+
+	private static class PrimitiveArrayBinding implements Binding {
+		private final Class<?> component;
+		private final int kind;
+		private final MethodHandle setter;
+		private final String target;
+
+		private PrimitiveArrayBinding(final Class<?> component) {
+			this.component = component;
+			kind = kindOf(component);
+			final Class<?> value = kind == BOOLEAN ? boolean.class
+					: kind < FLOAT ? long.class : double.class;
+			setter = MethodHandles.explicitCastArguments(
+					MethodHandles.arrayElementSetter(Array.newInstance(
+							component, 0).getClass()), MethodType.methodType(
+							void.class, Object.class, int.class, value));
+			target = component.getSimpleName() + "[]";
+		}
+
+		@Override
+		public Object read(final StreamingJsonCursor cursor) {
+			if (cursor.getEventType() == StreamingJsonCursor.NULL) {
+				return null;
+			}
+			requireArray(cursor, target);
+
+			Object array = Array.newInstance(component, 8);
+			int capacity = 8;
+			int size = 0;
+			try {
+				while (cursor.next() != StreamingJsonCursor.END_ARRAY) {
+					if (size == capacity) {
+						capacity *= 2;
+						array = copyOf(array, size, capacity);
+					}
+					switch (kind) {
+					case BOOLEAN:
+						setter.invokeExact(array, size,
+								readBoolean(cursor, target));
+						break;
+					case FLOAT:
+					case DOUBLE:
+						setter.invokeExact(array, size,
+								readDouble(cursor, target));
+						break;
+					default:
+						setter.invokeExact(array, size,
+								readIntegral(cursor, kind, target));
+					}
+					++size;
+				}
+			} catch (final Throwable t) {
+				throw rethrow(t);
+			}
+			return size == capacity ? array : copyOf(array, size, size);
+		}
+
+		private Object copyOf(final Object array, final int size,
+				final int length) {
+			final Object copy = Array.newInstance(component, length);
+			System.arraycopy(array, 0, copy, 0, size);
+			return copy;
+		}
+	}
+
+	private static class ArrayBinding implements Binding {
+		private final Class<?> component;
+		private final Binding element;
+		private final String target;
+
+		private ArrayBinding(final Class<?> component, final Binding element) {
+			this.component = component;
+			this.element = element;
+			target = component.getSimpleName() + "[]";
+		}
+
+		@Override
+		public Object read(final StreamingJsonCursor cursor) {
+			if (cursor.getEventType() == StreamingJsonCursor.NULL) {
+				return null;
+			}
+			requireArray(cursor, target);
+
+			final List<Object> elements = new ArrayList<Object>();
+			while (cursor.next() != StreamingJsonCursor.END_ARRAY) {
+				elements.add(element.read(cursor));
+			}
+			return elements.toArray((Object[]) Array.newInstance(component,
+					elements.size()));
+		}
+	}
+
+	private static class CollectionBinding implements Binding {
+		private final MethodHandle constructor;
+		private final Binding element;
+		private final String target;
+
+		private CollectionBinding(final Class<?> type, final Type element) {
+			constructor = constructorFor(type, ArrayList.class,
+					LinkedHashSet.class, TreeSet.class);
+			this.element = bindingFor(element);
+			target = type.getSimpleName();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object read(final StreamingJsonCursor cursor) {
+			if (cursor.getEventType() == StreamingJsonCursor.NULL) {
+				return null;
+			}
+			requireArray(cursor, target);
+
+			final Collection<Object> collection;
+			try {
+				collection = (Collection<Object>) (Object) constructor
+						.invokeExact();
+			} catch (final Throwable t) {
+				throw rethrow(t);
+			}
+			while (cursor.next() != StreamingJsonCursor.END_ARRAY) {
+				collection.add(element.read(cursor));
+			}
+			return collection;
+		}
+	}
+
+	private static class MapBinding implements Binding {
+		private final MethodHandle constructor;
+		private final Binding value;
+		private final String target;
+
+		private MapBinding(final Class<?> type, final Type key,
+				final Type value) {
+			final Class<?> keyClass = rawClass(key);
+			if (keyClass != String.class && keyClass != Object.class
+					&& keyClass != CharSequence.class) {
+				throw new UnsupportedOperationException(
+						"Map keys must be Strings: " + key);
+			}
+			constructor = constructorFor(type, LinkedHashMap.class,
+					TreeMap.class);
+			this.value = bindingFor(value);
+			target = type.getSimpleName();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object read(final StreamingJsonCursor cursor) {
+			if (cursor.getEventType() == StreamingJsonCursor.NULL) {
+				return null;
+			}
+			requireObject(cursor, target);
+
+			final Map<Object, Object> map;
+			try {
+				map = (Map<Object, Object>) (Object) constructor.invokeExact();
+			} catch (final Throwable t) {
+				throw rethrow(t);
+			}
+			while (cursor.next() == StreamingJsonCursor.KEY) {
+				final String key = cursor.getText();
+				cursor.next();
+				map.put(key, value.read(cursor));
+			}
+			return map;
+		}
+	}
+
+	/**
+	 * A field or record component, whose binding is looked up on first use so
+	 * that a class can refer to itself.
+	 */
+	private static class Property {
+		private final String name;
+		private final Type type;
+		private final int kind;
+		private final String target;
+		private final MethodHandle setter;
+		private final int slot;
+		private Binding binding;
+
+		private Property(final Class<?> owner, final String name,
+				final Class<?> type, final Type genericType,
+				final MethodHandle setter, final int slot) {
+			this.name = name;
+			this.type = genericType;
+			kind = kindOf(type);
+			target = owner.getSimpleName() + "." + name;
+			this.setter = setter;
+			this.slot = slot;
+		}
+
+		private Binding binding() {
+			Binding binding = this.binding;
+			if (binding == null) {
+				// a racing lookup finds an equivalent binding
+				binding = bindingFor(type);
+				this.binding = binding;
+			}
+			return binding;
+		}
+	}
+
+	private static KeyTable keyTable(final Property[] properties) {
+		final String[] names = new String[properties.length];
+		for (int i = 0; i < properties.length; ++i) {
+			names[i] = properties[i].name;
+		}
+		return KeyTable.build(names);
+	}
+
+	/**
+	 * Sets fields through MethodHandles cast to take Object and a long,
+	 * double, boolean or Object, so primitives are passed unboxed.
+	 */
+	private static class FieldBinding implements Binding {
+		private final MethodHandle constructor;
+		private final Property[] properties;
+		private final KeyTable keys;
+		private final String target;
+
+		private FieldBinding(final Class<?> type,
+				final MethodHandles.Lookup lookup) {
+			try {
+				constructor = lookup.findConstructor(type,
+						MethodType.methodType(void.class)).asType(
+						MethodType.methodType(Object.class));
+			} catch (final ReflectiveOperationException e) {
+				throw new UnsupportedOperationException(
+						"No no-argument constructor: " + type.getName(), e);
+			}
+
+			final List<Property> properties = new ArrayList<Property>();
+			final List<String> names = new ArrayList<String>();
+			for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+				for (final Field field : c.getDeclaredFields()) {
+					final int modifiers = field.getModifiers();
+					if (Modifier.isStatic(modifiers)
+							|| Modifier.isTransient(modifiers)
+							|| Modifier.isFinal(modifiers)
+							|| field.isSynthetic()
+							|| names.contains(field.getName())) {
+						continue;
+					}
+					names.add(field.getName());
+					properties.add(new Property(type, field.getName(), field
+							.getType(), field.getGenericType(), setter(field),
+							-1));
+				}
+			}
+			this.properties = properties.toArray(new Property[properties
+					.size()]);
+			keys = keyTable(this.properties);
+			target = type.getSimpleName();
+		}
+
+		private static MethodHandle setter(final Field field) {
+			final MethodHandle setter;
+			try {
+				setter = MethodHandles.privateLookupIn(
+						field.getDeclaringClass(), MethodHandles.lookup())
+						.unreflectSetter(field);
+			} catch (final IllegalAccessException e) {
+				throw new UnsupportedOperationException("Cannot set "
+						+ field, e);
+			}
+
+			final int kind = kindOf(field.getType());
+			final Class<?> value = kind == REFERENCE ? Object.class
+					: kind == BOOLEAN ? boolean.class
+							: kind < FLOAT ? long.class : double.class;
+			return MethodHandles.explicitCastArguments(setter,
+					MethodType.methodType(void.class, Object.class, value));
+		}
+
+		@Override
+		public Object read(final StreamingJsonCursor cursor) {
+			if (cursor.getEventType() == StreamingJsonCursor.NULL) {
+				return null;
+			}
+			requireObject(cursor, target);
+
+			try {
+				final Object object = (Object) constructor.invokeExact();
+				while (cursor.next() == StreamingJsonCursor.KEY) {
+					final int index = keys.find(cursor.getTextCharacters(),
+							cursor.getTextOffset(), cursor.getTextLength());
+					if (index == -1) {
+						cursor.skipValue();
+						continue;
+					}
+
+					final Property property = properties[index];
+					final MethodHandle setter = property.setter;
+					if (cursor.next() == StreamingJsonCursor.NULL
+							&& property.kind != REFERENCE) {
+						continue;
+					}
+					switch (property.kind) {
+					case BOOLEAN:
+						setter.invokeExact(object,
+								readBoolean(cursor, property.target));
+						break;
+					case FLOAT:
+					case DOUBLE:
+						setter.invokeExact(object,
+								readDouble(cursor, property.target));
+						break;
+					case REFERENCE:
+						setter.invokeExact(object,
+								property.binding().read(cursor));
+						break;
+					default:
+						setter.invokeExact(object, readIntegral(cursor,
+								property.kind, property.target));
+					}
+				}
+				return object;
+			} catch (final Throwable t) {
+				throw rethrow(t);
+			}
+		}
+	}
+
+	/**
+	 * Gathers primitives, doubles as their bits, into a long[] and references
+	 * into an Object[] for the canonical constructor.
+	 */
+	private static class RecordBinding implements Binding {
+		private final MethodHandle constructor;
+		private final Property[] properties;
+		private final KeyTable keys;
+		private final String target;
+
+		private RecordBinding(final Class<?> type,
+				final MethodHandles.Lookup lookup,
+				final RecordComponent[] components) {
+			final Class<?>[] types = new Class<?>[components.length];
+			final MethodHandle[] arguments = new MethodHandle[components.length];
+			final int[] order = new int[components.length];
+			properties = new Property[components.length];
+			for (int i = 0; i < components.length; ++i) {
+				types[i] = components[i].getType();
+				properties[i] = new Property(type, components[i].getName(),
+						types[i], components[i].getGenericType(), null, i);
+
+				MethodHandle argument;
+				if (types[i].isPrimitive()) {
+					argument = MethodHandles.insertArguments(
+							MethodHandles.arrayElementGetter(long[].class), 1,
+							i);
+					if (properties[i].kind == FLOAT
+							|| properties[i].kind == DOUBLE) {
+						argument = MethodHandles.filterReturnValue(argument,
+								LONG_BITS_TO_DOUBLE);
+					}
+				} else {
+					argument = MethodHandles.insertArguments(
+							MethodHandles.arrayElementGetter(Object[].class), 1,
+							i);
+					order[i] = 1;
+				}
+				arguments[i] = MethodHandles.explicitCastArguments(argument,
+						argument.type().changeReturnType(types[i]));
+			}
+
+			try {
+				final MethodHandle canonical = lookup.findConstructor(type,
+						MethodType.methodType(void.class, types));
+				constructor = MethodHandles.permuteArguments(
+						MethodHandles.filterArguments(canonical, 0, arguments)
+								.asType(MethodType.methodType(Object.class,
+										argumentTypes(order))),
+						MethodType.methodType(Object.class, long[].class,
+								Object[].class), order);
+			} catch (final ReflectiveOperationException e) {
+				throw new UnsupportedOperationException(
+						"No canonical constructor: " + type.getName(), e);
+			}
+			keys = keyTable(properties);
+			target = type.getSimpleName();
+		}
+
+		private static Class<?>[] argumentTypes(final int[] order) {
+			final Class<?>[] types = new Class<?>[order.length];
+			for (int i = 0; i < order.length; ++i) {
+				types[i] = order[i] == 0 ? long[].class : Object[].class;
+			}
+			return types;
+		}
+
+		@Override
+		public Object read(final StreamingJsonCursor cursor) {
+			if (cursor.getEventType() == StreamingJsonCursor.NULL) {
+				return null;
+			}
+			requireObject(cursor, target);
+
+			final long[] primitives = new long[properties.length];
+			final Object[] references = new Object[properties.length];
+			while (cursor.next() == StreamingJsonCursor.KEY) {
+				final int index = keys.find(cursor.getTextCharacters(),
+						cursor.getTextOffset(), cursor.getTextLength());
+				if (index == -1) {
+					cursor.skipValue();
+					continue;
+				}
+
+				final Property property = properties[index];
+				if (cursor.next() == StreamingJsonCursor.NULL
+						&& property.kind != REFERENCE) {
+					continue;
+				}
+				switch (property.kind) {
+				case BOOLEAN:
+					primitives[property.slot] = readBoolean(cursor,
+							property.target) ? 1 : 0;
+					break;
+				case FLOAT:
+				case DOUBLE:
+					primitives[property.slot] = Double
+							.doubleToRawLongBits(readDouble(cursor,
+									property.target));
+					break;
+				case REFERENCE:
+					references[property.slot] = property.binding().read(cursor);
+					break;
+				default:
+					primitives[property.slot] = readIntegral(cursor,
+							property.kind, property.target);
+				}
+			}
+
+			try {
+				return (Object) constructor.invokeExact(primitives, references);
+			} catch (final Throwable t) {
+				throw rethrow(t);
+			}
+		}
+	}
+
+	/**
+	 * A perfect hash table of names, with the seed and size searched for
+	 * until every name has a slot of its own.
+	 */
+	private static class KeyTable {
+		private static final int SEEDS_PER_SIZE = 64;
+		private static final int MAX_BITS = 24;
+
+		private final char[][] names;
+		private final int[] indexes;
+		private final int seed;
+		private final int shift;
+
+		private KeyTable(final char[][] names, final int[] indexes,
+				final int seed, final int shift) {
+			this.names = names;
+			this.indexes = indexes;
+			this.seed = seed;
+			this.shift = shift;
+		}
+
+		private static KeyTable build(final String[] keys) {
+			int bits = 1;
+			while (1 << bits < keys.length * 2) {
+				++bits;
+			}
+
+			for (; bits <= MAX_BITS; ++bits) {
+				int seed = 31;
+				for (int attempt = 0; attempt < SEEDS_PER_SIZE; ++attempt) {
+					final char[][] names = new char[1 << bits][];
+					final int[] indexes = new int[1 << bits];
+					boolean placed = true;
+					for (int i = 0; i < keys.length && placed; ++i) {
+						final char[] name = keys[i].toCharArray();
+						final int slot = slot(name, 0, name.length, seed,
+								32 - bits);
+						placed = names[slot] == null;
+						names[slot] = name;
+						indexes[slot] = i;
+					}
+					if (placed) {
+						return new KeyTable(names, indexes, seed, 32 - bits);
+					}
+					seed = seed * 0x9E3779B9 + 0x7F4A7C15 | 1;
+				}
+			}
+			throw new IllegalStateException("No perfect hash for "
+					+ Arrays.toString(keys));
+		}
+
+		private static int slot(final char[] chars, final int offset,
+				final int length, final int seed, final int shift) {
+			int hash = length;
+			for (int i = offset; i < offset + length; ++i) {
+				hash = hash * seed + chars[i];
+			}
+			return hash * 0x9E3779B9 >>> shift;
+		}
+
+		private int find(final char[] chars, final int offset,
+				final int length) {
+			final int slot = slot(chars, offset, length, seed, shift);
+			final char[] name = names[slot];
+			return name != null
+					&& Arrays.equals(name, 0, name.length, chars, offset,
+							offset + length) ? indexes[slot] : -1;
+		}
+	}
+}
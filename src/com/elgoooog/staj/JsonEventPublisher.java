@@ -0,0 +1,204 @@
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+/**
+ * Publishes a document's events, START to END, in batches to a single
+ * Flow.Subscriber. Nothing is parsed ahead of demand: each request(n) parses
+ * up to n more batches on the executor, and no task runs while there is no
+ * demand. Cancelling, completing or failing closes the TokenReader.
+ */
+public class JsonEventPublisher implements Flow.Publisher<List<JsonEvent>> {
+	public static final int DEFAULT_BATCH_SIZE = 128;
+
+	private final SynchronousStreamingJsonReader reader;
+	private final TokenReader tokenReader;
+	private final Executor executor;
+	private final int batchSize;
+	private final AtomicBoolean subscribed;
+
+	public JsonEventPublisher(final StreamingJsonParser parser,
+			final Executor executor) {
+		this(parser, executor, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Every batch but the last holds batchSize events.
+	 */
+	public JsonEventPublisher(final StreamingJsonParser parser,
+			final Executor executor, final int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Invalid batch size: "
+					+ batchSize);
+		}
+		reader = new SynchronousStreamingJsonReader(parser);
+		tokenReader = parser.getTokenReader();
+		this.executor = Objects.requireNonNull(executor);
+		this.batchSize = batchSize;
+		subscribed = new AtomicBoolean();
+	}
+
+	/**
+	 * The input can only be read once, so any later subscriber gets an
+	 * IllegalStateException through onError.
+	 */
+	@Override
+	public void subscribe(
+			final Flow.Subscriber<? super List<JsonEvent>> subscriber) {
+		Objects.requireNonNull(subscriber);
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(NoSubscription.INSTANCE);
+			subscriber.onError(new IllegalStateException(
+					"Already subscribed, events can only be published once"));
+			return;
+		}
+		subscriber.onSubscribe(new Subscription(subscriber));
+	}
+
+	private static class NoSubscription implements Flow.Subscription {
+		private static final NoSubscription INSTANCE = new NoSubscription();
+
+		@Override
+		public void request(final long n) {
+		}
+
+		@Override
+		public void cancel() {
+		}
+	}
+
+	/**
+	 * Only the thread that raised the work counter from zero sends signals,
+	 * so there is one at a time: it starts a task, and the task keeps
+	 * draining until it has seen every raise.
+	 */
+	private class Subscription implements Flow.Subscription, Runnable {
+		private final Flow.Subscriber<? super List<JsonEvent>> subscriber;
+		private final AtomicLong requested;
+		private final AtomicInteger work;
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+		private boolean done;
+
+		private Subscription(
+				final Flow.Subscriber<? super List<JsonEvent>> subscriber) {
+			this.subscriber = subscriber;
+			requested = new AtomicLong();
+			work = new AtomicInteger();
+		}
+
+		@Override
+		public void request(final long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException(
+						"Non-positive request: " + n);
+			} else {
+				requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (work.getAndIncrement() == 0) {
+				try {
+					executor.execute(this);
+				} catch (final RejectedExecutionException e) {
+					// still the only one signalling
+					done = true;
+					subscriber.onError(closeAfter(e));
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				if (!done) {
+					drain();
+				}
+				missed = work.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void drain() {
+			while (true) {
+				if (cancelled) {
+					done = true;
+					closeAfter(null);
+					return;
+				} else if (invalidRequest != null) {
+					done = true;
+					subscriber.onError(closeAfter(invalidRequest));
+					return;
+				} else if (requested.get() == 0) {
+					return;
+				}
+
+				final List<JsonEvent> batch = new ArrayList<JsonEvent>(
+						batchSize);
+				JsonEvent event;
+				try {
+					do {
+						event = reader.next();
+						batch.add(event);
+					} while (event != JsonEvent.END
+							&& batch.size() < batchSize);
+				} catch (final RuntimeException e) {
+					done = true;
+					subscriber.onError(closeAfter(e));
+					return;
+				}
+
+				if (requested.get() != Long.MAX_VALUE) {
+					requested.decrementAndGet();
+				}
+				subscriber.onNext(batch);
+
+				if (event == JsonEvent.END) {
+					done = true;
+					final Throwable failure = closeAfter(null);
+					if (failure != null) {
+						subscriber.onError(failure);
+					} else if (!cancelled) {
+						subscriber.onComplete();
+					}
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Closes the TokenReader and returns the given failure, or the one
+		 * closing it caused.
+		 */
+		private Throwable closeAfter(final Throwable failure) {
+			try {
+				tokenReader.close();
+			} catch (final IOException e) {
+				if (failure == null) {
+					return e;
+				}
+				failure.addSuppressed(e);
+			}
+			return failure;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.elgoooog.staj;
+
+import java.math.BigInteger;
+
+/**
+ * Decimal to double conversion for numbers already split into a 64-bit
+ * mantissa and a decimal exponent by the tokenizer. Tries Clinger's exact
+ * fast path first and then the Eisel-Lemire algorithm; returns NaN when
+ * neither can decide, in which case the caller falls back to
+ * Double.parseDouble.
+ */
+final class JsonNumbers {
+	private static final int SMALLEST_POWER_OF_TEN = -342;
+	private static final int LARGEST_POWER_OF_TEN = 308;
+	private static final int MANTISSA_EXPLICIT_BITS = 52;
+	private static final int MINIMUM_EXPONENT = -1023;
+	private static final int INFINITE_POWER = 0x7FF;
+	private static final long PRECISION_MASK = 0xFFFFFFFFFFFFFFFFL >>> (MANTISSA_EXPLICIT_BITS + 3);
+
+	private static final double[] EXACT_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3,
+			1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+			1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// 128-bit truncated 5^q for q in [-342, 308], high word then low word
+	private static final long[] POWERS_OF_FIVE = powersOfFive();
+
+	private JsonNumbers() {
+	}
+
+	static double toDouble(final boolean negative, final long mantissa,
+			final int exponent) {
+		if (mantissa >= 0 && mantissa <= 1L << 53
+				&& exponent >= -22 && exponent <= 22) {
+			// both operands are exact, so one rounding gives the right answer
+			double value = mantissa;
+			if (exponent < 0) {
+				value /= EXACT_POWERS_OF_TEN[-exponent];
+			} else {
+				value *= EXACT_POWERS_OF_TEN[exponent];
+			}
+			return negative ? -value : value;
+		}
+
+		final long bits = eiselLemire(mantissa, exponent);
+		if (bits < 0) {
+			return Double.NaN;
+		}
+		return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+	}
+
+	/**
+	 * Returns the IEEE bits of mantissa * 10^exponent without the sign, or -1
+	 * when the approximation is too close to call.
+	 */
+	private static long eiselLemire(long mantissa, final int exponent) {
+		if (mantissa == 0 || exponent < SMALLEST_POWER_OF_TEN) {
+			return 0;
+		} else if (exponent > LARGEST_POWER_OF_TEN) {
+			return (long) INFINITE_POWER << MANTISSA_EXPLICIT_BITS;
+		}
+
+		final int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+		mantissa <<= leadingZeros;
+
+		final int index = 2 * (exponent - SMALLEST_POWER_OF_TEN);
+		long high = unsignedMultiplyHigh(mantissa, POWERS_OF_FIVE[index]);
+		long low = mantissa * POWERS_OF_FIVE[index];
+		if ((high & PRECISION_MASK) == PRECISION_MASK) {
+			final long secondHigh = unsignedMultiplyHigh(mantissa,
+					POWERS_OF_FIVE[index + 1]);
+			low += secondHigh;
+			if (Long.compareUnsigned(secondHigh, low) > 0) {
+				++high;
+			}
+		}
+		if (low == 0xFFFFFFFFFFFFFFFFL && (exponent < -27 || exponent > 55)) {
+			return -1;
+		}
+
+		final int upperBit = (int) (high >>> 63);
+		final int shift = upperBit + 64 - MANTISSA_EXPLICIT_BITS - 3;
+		long result = high >>> shift;
+		int power2 = power(exponent) + upperBit - leadingZeros
+				- MINIMUM_EXPONENT;
+
+		if (power2 <= 0) {
+			// subnormal
+			if (-power2 + 1 >= 64) {
+				return 0;
+			}
+			result >>>= -power2 + 1;
+			result += result & 1;
+			result >>>= 1;
+			power2 = result < 1L << MANTISSA_EXPLICIT_BITS ? 0 : 1;
+			return result | (long) power2 << MANTISSA_EXPLICIT_BITS;
+		}
+
+		if (Long.compareUnsigned(low, 1) <= 0 && exponent >= -4
+				&& exponent <= 23 && (result & 3) == 1
+				&& result << shift == high) {
+			// exactly halfway, round to even
+			result &= ~1L;
+		}
+
+		result += result & 1;
+		result >>>= 1;
+		if (result >= 2L << MANTISSA_EXPLICIT_BITS) {
+			result = 1L << MANTISSA_EXPLICIT_BITS;
+			++power2;
+		}
+		result &= ~(1L << MANTISSA_EXPLICIT_BITS);
+
+		if (power2 >= INFINITE_POWER) {
+			return (long) INFINITE_POWER << MANTISSA_EXPLICIT_BITS;
+		}
+		return result | (long) power2 << MANTISSA_EXPLICIT_BITS;
+	}
+
+	private static int power(final int q) {
+		return ((152170 + 65536) * q >> 16) + 63;
+	}
+
+	private static long unsignedMultiplyHigh(final long x, final long y) {
+		return Math.multiplyHigh(x, y) + (x >> 63 & y) + (y >> 63 & x);
+	}
+
+	private static long[] powersOfFive() {
+		final long[] table = new long[2 * (LARGEST_POWER_OF_TEN
+				- SMALLEST_POWER_OF_TEN + 1)];
+		final BigInteger five = BigInteger.valueOf(5);
+		final BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(
+				BigInteger.ONE);
+
+		int index = 0;
+		for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; ++q) {
+			BigInteger value;
+			if (q < 0) {
+				// a rounded up reciprocal, scaled into [2^127, 2^128)
+				final BigInteger power = five.pow(-q);
+				final int z = power.subtract(BigInteger.ONE).bitLength();
+				final int b = q >= -27 ? z + 127 : 2 * z + 128;
+				value = BigInteger.ONE.shiftLeft(b).divide(power)
+						.add(BigInteger.ONE);
+				if (value.bitLength() > 128) {
+					value = value.shiftRight(value.bitLength() - 128);
+				}
+			} else {
+				value = five.pow(q);
+				value = value.bitLength() < 128 ? value
+						.shiftLeft(128 - value.bitLength()) : value
+						.shiftRight(value.bitLength() - 128);
+			}
+			table[index++] = value.shiftRight(64).longValue();
+			table[index++] = value.and(mask).longValue();
+		}
+		return table;
+	}
+}
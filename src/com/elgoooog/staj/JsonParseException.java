@@ -1,9 +1,9 @@
-package com.elgoooog.staj;
-
-public class JsonParseException extends RuntimeException {
-	private static final long serialVersionUID = 1L;
-
-	public JsonParseException(final String message) {
-		super(message);
-	}
-}
+package com.elgoooog.staj;
+
+public class JsonParseException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public JsonParseException(final String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,170 @@
+package com.elgoooog.staj;
+
+import java.util.Arrays;
+
+/**
+ * A compiled set of simple JSONPath expressions such as $.items[*].id or
+ * $.meta['time stamp']. Supported steps are .name, ['name'], .*, [*] and [n].
+ * Immutable, so one instance can be shared between parsers.
+ */
+public class JsonPathProjection {
+	private static final int MAX_PATHS = 64;
+	private static final int WILDCARD = -1;
+	private static final int NAME = -2;
+
+	private final String[] paths;
+	private final String[][] names;
+	private final int[][] indexes;
+	private final long[] lengthMasks;
+
+	public JsonPathProjection(final String... paths) {
+		if (paths.length == 0 || paths.length > MAX_PATHS) {
+			throw new IllegalArgumentException("Between 1 and " + MAX_PATHS
+					+ " paths are supported, not " + paths.length);
+		}
+
+		this.paths = paths.clone();
+		names = new String[paths.length][];
+		indexes = new int[paths.length][];
+
+		int maxLength = 0;
+		for (int i = 0; i < paths.length; ++i) {
+			compile(i, paths[i]);
+			maxLength = Math.max(maxLength, names[i].length);
+		}
+
+		lengthMasks = new long[maxLength + 1];
+		for (int i = 0; i < paths.length; ++i) {
+			lengthMasks[names[i].length] |= 1L << i;
+		}
+	}
+
+	/**
+	 * Paths whose bit is set in the result have exactly the given number of
+	 * steps.
+	 */
+	protected long pathsOfLength(final int length) {
+		return length < lengthMasks.length ? lengthMasks[length] : 0;
+	}
+
+	protected long allPaths() {
+		return paths.length == MAX_PATHS ? -1L : (1L << paths.length) - 1;
+	}
+
+	protected boolean matchesKey(final int path, final int step,
+			final char[] text, final int length) {
+		if (step >= names[path].length) {
+			return false;
+		}
+
+		final int index = indexes[path][step];
+		if (index == WILDCARD) {
+			return true;
+		} else if (index != NAME) {
+			return false;
+		}
+
+		final String name = names[path][step];
+		if (name.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; ++i) {
+			if (name.charAt(i) != text[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	protected boolean matchesIndex(final int path, final int step,
+			final int arrayIndex) {
+		if (step >= names[path].length) {
+			return false;
+		}
+
+		final int index = indexes[path][step];
+		return index == WILDCARD || index == arrayIndex;
+	}
+
+	private void compile(final int path, final String expression) {
+		if (!expression.startsWith("$")) {
+			throw invalid(expression);
+		}
+
+		final int length = expression.length();
+		String[] stepNames = new String[4];
+		int[] stepIndexes = new int[4];
+		int steps = 0;
+
+		int i = 1;
+		while (i < length) {
+			if (steps == stepNames.length) {
+				stepNames = Arrays.copyOf(stepNames, steps * 2);
+				stepIndexes = Arrays.copyOf(stepIndexes, steps * 2);
+			}
+
+			final char c = expression.charAt(i);
+			if (c == '.') {
+				int end = i + 1;
+				while (end < length && expression.charAt(end) != '.'
+						&& expression.charAt(end) != '[') {
+					++end;
+				}
+				final String name = expression.substring(i + 1, end);
+				if (name.isEmpty()) {
+					throw invalid(expression);
+				}
+				stepIndexes[steps] = name.equals("*") ? WILDCARD : NAME;
+				stepNames[steps] = name;
+				i = end;
+			} else if (c == '[') {
+				final char quote = i + 1 < length ? expression.charAt(i + 1)
+						: 0;
+				final int end;
+				if (quote == '\'' || quote == '"') {
+					// a quoted name may itself contain brackets and dots
+					end = expression.indexOf(quote + "]", i + 2) + 1;
+				} else {
+					end = expression.indexOf(']', i);
+				}
+				if (end <= 0) {
+					throw invalid(expression);
+				}
+
+				final String inside = expression.substring(i + 1, end);
+				if (quote == '\'' || quote == '"') {
+					stepIndexes[steps] = NAME;
+					stepNames[steps] = inside.substring(1,
+							inside.length() - 1);
+				} else if (inside.equals("*")) {
+					stepIndexes[steps] = WILDCARD;
+				} else {
+					try {
+						stepIndexes[steps] = Integer.parseInt(inside);
+					} catch (final NumberFormatException e) {
+						throw invalid(expression);
+					}
+					if (stepIndexes[steps] < 0) {
+						throw invalid(expression);
+					}
+				}
+				i = end + 1;
+			} else {
+				throw invalid(expression);
+			}
+			++steps;
+		}
+
+		names[path] = Arrays.copyOf(stepNames, steps);
+		indexes[path] = Arrays.copyOf(stepIndexes, steps);
+	}
+
+	private static IllegalArgumentException invalid(final String expression) {
+		return new IllegalArgumentException("Unsupported path: " + expression);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(paths);
+	}
+}
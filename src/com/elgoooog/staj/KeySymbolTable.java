@@ -0,0 +1,138 @@
+package com.elgoooog.staj;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded table of canonical key Strings. A hit returns the cached instance
+ * without allocating, so keys from documents sharing a table can be compared
+ * by reference. Once maxSize keys are cached, new keys are still returned but
+ * no longer added.
+ *
+ * Safe to share between threads: a slot is claimed with a compare-and-set,
+ * so threads racing to add the same key all get the winner's instance.
+ */
+public class KeySymbolTable {
+	private final AtomicReferenceArray<Symbol> symbols;
+	private final int mask;
+	private final int maxSize;
+	private final AtomicInteger size;
+	private final LongAdder hits;
+	private final LongAdder misses;
+
+	public KeySymbolTable(final int maxSize) {
+		if (maxSize < 1 || maxSize > 1 << 29) {
+			throw new IllegalArgumentException("Invalid max size: " + maxSize);
+		}
+
+		// keep the load factor at or under one half
+		int capacity = 2;
+		while (capacity < maxSize * 2) {
+			capacity <<= 1;
+		}
+
+		symbols = new AtomicReferenceArray<Symbol>(capacity);
+		mask = capacity - 1;
+		this.maxSize = maxSize;
+		size = new AtomicInteger();
+		hits = new LongAdder();
+		misses = new LongAdder();
+	}
+
+	public String intern(final char[] chars, final int offset, final int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; ++i) {
+			hash = 31 * hash + chars[i];
+		}
+
+		int index = (hash ^ hash >>> 16) & mask;
+		String value = null;
+		while (true) {
+			final Symbol symbol = symbols.get(index);
+			if (symbol == null) {
+				if (value == null) {
+					value = new String(chars, offset, length);
+				}
+				if (!reserve()
+						|| symbols.compareAndSet(index, null, new Symbol(hash,
+								value))) {
+					misses.increment();
+					return value;
+				}
+				// another thread took the slot, maybe for this key
+				size.decrementAndGet();
+			} else if (symbol.hash == hash
+					&& symbol.matches(chars, offset, length)) {
+				hits.increment();
+				return symbol.value;
+			} else {
+				index = index + 1 & mask;
+			}
+		}
+	}
+
+	/**
+	 * Counts a symbol about to be added, unless maxSize are already in.
+	 */
+	private boolean reserve() {
+		int current;
+		do {
+			current = size.get();
+			if (current >= maxSize) {
+				return false;
+			}
+		} while (!size.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public void resetCounters() {
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "KeySymbolTable[size=" + size() + "/" + maxSize + ", hits="
+				+ getHits() + ", misses=" + getMisses() + "]";
+	}
+
+	private static final class Symbol {
+		private final int hash;
+		private final String value;
+
+		private Symbol(final int hash, final String value) {
+			this.hash = hash;
+			this.value = value;
+		}
+
+		private boolean matches(final char[] chars, final int offset,
+				final int length) {
+			if (value.length() != length) {
+				return false;
+			}
+			for (int i = 0; i < length; ++i) {
+				if (value.charAt(i) != chars[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a file through a sliding read-only memory mapping, so files past the
+ * 2 GB limit of a single MappedByteBuffer can be read without pulling them
+ * onto the heap.
+ * <p>
+ * TokenReader still copies each window into its heap buffer, as its scanners
+ * index a byte[] and a mapping cannot be one. That single copy out of the
+ * page cache is cheaper than a FileChannel stream, which pays a read call
+ * and a copy through a temporary direct buffer for every buffer filled;
+ * see MappedFileBenchmark.
+ */
+class MappedFileInputStream extends InputStream {
+	private static final long DEFAULT_WINDOW_SIZE = 64L << 20;
+
+	private final FileChannel channel;
+	private final long size;
+	private final long windowSize;
+	private long nextWindow;
+	private MappedByteBuffer window;
+
+	MappedFileInputStream(final FileChannel channel) throws IOException {
+		this(channel, DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedFileInputStream(final FileChannel channel, final long windowSize)
+			throws IOException {
+		if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid window size: "
+					+ windowSize);
+		}
+		this.channel = channel;
+		this.windowSize = windowSize;
+		size = channel.size();
+		nextWindow = channel.position();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!ensureWindow()) {
+			return -1;
+		}
+		return window.get() & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len)
+			throws IOException {
+		if (len == 0) {
+			return 0;
+		} else if (!ensureWindow()) {
+			return -1;
+		}
+
+		final int n = Math.min(len, window.remaining());
+		window.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return window == null ? 0 : window.remaining();
+	}
+
+	private boolean ensureWindow() throws IOException {
+		if (window != null && window.hasRemaining()) {
+			return true;
+		} else if (nextWindow >= size) {
+			return false;
+		}
+
+		final long length = Math.min(windowSize, size - nextWindow);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, nextWindow, length);
+		nextWindow += length;
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,285 @@
+package com.elgoooog.staj;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+/**
+ * A cursor that is pushed bytes as they arrive instead of reading a stream,
+ * for event loops that must never block. next() returns NEED_MORE_INPUT
+ * when the bytes fed so far end before the next event does; feed more and
+ * call next() again. Only the unfinished token is kept between feeds. A
+ * string or number cut short is only parsed again once a byte that may end
+ * it has been fed, so one arriving in many small pieces costs time linear in
+ * its length, though it is still buffered whole. Errors inside it are then
+ * reported when its end arrives.
+ */
+public class NonBlockingJsonCursor extends StreamingJsonCursor {
+	public static final int NEED_MORE_INPUT = 13;
+
+	private static final byte[] NO_BYTES = new byte[0];
+	// the token next() last stopped inside, as far as it needs to know
+	private static final byte NO_TOKEN = 0;
+	private static final byte STRING_TOKEN = 1;
+	private static final byte NUMBER_TOKEN = 2;
+
+	private final FeedTokenReader feedReader;
+	private byte waitingFor;
+	// bytes from the reader's position known not to end that token
+	private int scanned;
+	// whether the last of them is an unmatched backslash in a string
+	private boolean escaped;
+
+	public NonBlockingJsonCursor() {
+		this(new StreamingJsonParser(new FeedTokenReader()));
+	}
+
+	/**
+	 * The parser must read from a FeedTokenReader and must not be a
+	 * projecting one.
+	 */
+	protected NonBlockingJsonCursor(final StreamingJsonParser parser) {
+		super(parser);
+		if (parser instanceof ProjectingStreamingJsonParser) {
+			throw new UnsupportedOperationException(
+					"Projections are not supported without blocking");
+		}
+		feedReader = (FeedTokenReader) parser.getTokenReader();
+	}
+
+	/**
+	 * Appends the remaining bytes of the buffer to the input, leaving it
+	 * empty.
+	 */
+	public void feed(final ByteBuffer bytes) {
+		feedReader.feed(bytes);
+	}
+
+	public void feed(final byte[] bytes, final int offset, final int length) {
+		feedReader.feed(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * No more bytes will be fed. The rest of the input is parsed to END, or
+	 * fails if it stops part way through a value.
+	 */
+	public void endOfInput() {
+		feedReader.endOfInput = true;
+	}
+
+	@Override
+	public int next() {
+		if (waitingFor != NO_TOKEN && !feedReader.endOfInput
+				&& !mayEndToken()) {
+			setEventType(NEED_MORE_INPUT);
+			return NEED_MORE_INPUT;
+		}
+		waitingFor = NO_TOKEN;
+
+		final StreamingJsonParser parser = getParser();
+		final long mark = parser.mark();
+		final int position = feedReader.getPosition();
+		try {
+			return super.next();
+		} catch (final NeedMoreInput e) {
+			parser.rewind(mark);
+			feedReader.setPosition(position);
+			waitFor(position);
+			setEventType(NEED_MORE_INPUT);
+			return NEED_MORE_INPUT;
+		}
+	}
+
+	/**
+	 * Finds the string or number that the event starting at the position
+	 * stopped inside, if any, and how far the bytes fed so far go without
+	 * ending it.
+	 */
+	private void waitFor(final int position) {
+		final byte[] buffer = feedReader.getBuffer();
+		final int limit = feedReader.getLimit();
+		int p = skipWhitespace(buffer, position, limit);
+		if (p < limit && (buffer[p] == ',' || buffer[p] == ':')) {
+			p = skipWhitespace(buffer, p + 1, limit);
+		}
+
+		if (p == limit) {
+			return;
+		} else if (buffer[p] == '"') {
+			waitingFor = STRING_TOKEN;
+			scanned = p + 1 - position;
+		} else if (buffer[p] == '-' || buffer[p] >= '0' && buffer[p] <= '9') {
+			waitingFor = NUMBER_TOKEN;
+			scanned = p - position;
+		} else {
+			return;
+		}
+		escaped = false;
+		if (mayEndToken()) {
+			// stopped for some other reason, so parse it again next time
+			waitingFor = NO_TOKEN;
+		}
+	}
+
+	/**
+	 * Looks through the bytes fed since the last look for one that may end
+	 * the token, which the parser then reads again from its start.
+	 */
+	private boolean mayEndToken() {
+		final byte[] buffer = feedReader.getBuffer();
+		final int start = feedReader.getPosition();
+		final int limit = feedReader.getLimit();
+		for (int p = start + scanned; p < limit; ++p) {
+			final byte b = buffer[p];
+			if (waitingFor == STRING_TOKEN) {
+				if (escaped) {
+					escaped = false;
+				} else if (b == '\\') {
+					escaped = true;
+				} else if (b == '"') {
+					return true;
+				}
+			} else if ((b < '0' || b > '9') && b != '.' && b != 'e'
+					&& b != 'E' && b != '+' && b != '-') {
+				return true;
+			}
+		}
+		scanned = limit - start;
+		return false;
+	}
+
+	private static int skipWhitespace(final byte[] buffer, int p,
+			final int limit) {
+		while (p < limit
+				&& (buffer[p] == ' ' || buffer[p] == '\n'
+						|| buffer[p] == '\r' || buffer[p] == '\t')) {
+			++p;
+		}
+		return p;
+	}
+
+	/**
+	 * Returns NEED_MORE_INPUT, having skipped nothing, when the close has not
+	 * been fed yet. Unlike next(), each call scans the skipped bytes fed so
+	 * far again, so skip large values once most of them are in.
+	 */
+	@Override
+	public int skipChildren() {
+		waitingFor = NO_TOKEN;
+		final StreamingJsonParser parser = getParser();
+		final long mark = parser.mark();
+		final int position = feedReader.getPosition();
+		try {
+			return super.skipChildren();
+		} catch (final NeedMoreInput e) {
+			parser.rewind(mark);
+			feedReader.setPosition(position);
+			setEventType(NEED_MORE_INPUT);
+			return NEED_MORE_INPUT;
+		}
+	}
+
+	/**
+	 * Not supported, as there is no way to report missing input. Use next()
+	 * and skipChildren() instead.
+	 */
+	@Override
+	public boolean skipValue() {
+		throw new UnsupportedOperationException(
+				"skipValue() can block, use next() and skipChildren()");
+	}
+
+	/**
+	 * Starts over on a new connection, keeping the buffers and settings.
+	 */
+	public void reset() {
+		reset(NO_BYTES, 0, 0);
+	}
+
+	@Override
+	public void reset(final byte[] json, final int offset, final int length) {
+		waitingFor = NO_TOKEN;
+		super.reset(json, offset, length);
+	}
+
+	@Override
+	public void reset(final InputStream is) {
+		throw new UnsupportedOperationException(
+				"Bytes are fed, not read from a stream");
+	}
+
+	/**
+	 * Holds the bytes fed but not yet parsed. Running out of them throws
+	 * NeedMoreInput, unless the input has ended.
+	 */
+	protected static class FeedTokenReader extends TokenReader {
+		private static final int BUFFER_SIZE = 8192;
+
+		private boolean endOfInput;
+
+		public FeedTokenReader() {
+			super(new byte[BUFFER_SIZE], 0, 0);
+		}
+
+		private void feed(final ByteBuffer bytes) {
+			if (endOfInput) {
+				throw new IllegalStateException("Input has already ended");
+			}
+
+			// keep only what has not been parsed yet, at the front, once the
+			// current string no longer needs the bytes it came from
+			decodePendingText();
+			final byte[] buffer = getBuffer();
+			final int kept = getLimit() - getPosition();
+			final int length = kept + bytes.remaining();
+			final byte[] target = length > buffer.length ? new byte[Math.max(
+					length, buffer.length * 2)] : buffer;
+			System.arraycopy(buffer, getPosition(), target, 0, kept);
+			bytes.get(target, kept, bytes.remaining());
+			setBuffer(target, 0, length);
+		}
+
+		@Override
+		public void reset(final byte[] bytes, final int offset,
+				final int length) {
+			endOfInput = false;
+			// drops the text of the last connection's string, which the
+			// buffer no longer holds, before feed() would decode it
+			super.reset(getBuffer(), 0, 0);
+			feed(ByteBuffer.wrap(bytes, offset, length));
+		}
+
+		@Override
+		public void reset(final InputStream is) {
+			throw new UnsupportedOperationException(
+					"Bytes are fed, not read from a stream");
+		}
+
+		@Override
+		public void reset(final Reader reader) {
+			throw new UnsupportedOperationException(
+					"Bytes are fed, not read from a reader");
+		}
+
+		@Override
+		protected boolean fill() {
+			if (endOfInput) {
+				return false;
+			}
+			throw NeedMoreInput.INSTANCE;
+		}
+	}
+
+	/**
+	 * Unwinds the parser to next(), which rewinds it. Shared and without a
+	 * stack trace, so waiting for input costs no allocation.
+	 */
+	private static class NeedMoreInput extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private static final NeedMoreInput INSTANCE = new NeedMoreInput();
+
+		private NeedMoreInput() {
+			super(null, null, false, false);
+		}
+	}
+}
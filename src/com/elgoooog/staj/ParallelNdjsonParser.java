@@ -0,0 +1,275 @@
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Parses newline-delimited JSON, one document per line, on an
+ * ExecutorService. The calling thread only cuts the input into chunks at line
+ * ends; every chunk is parsed by one task, so records reach the RecordHandler
+ * on several threads at once. Blank lines are ignored.
+ */
+public class ParallelNdjsonParser {
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	private final StreamingJsonReaderFactory factory;
+	private final ExecutorService executor;
+	private boolean ordered;
+	private int chunkSize;
+	private int maxChunksInFlight;
+
+	public ParallelNdjsonParser(final StreamingJsonReaderFactory factory,
+			final ExecutorService executor) {
+		this.factory = factory;
+		this.executor = executor;
+		ordered = false;
+		chunkSize = DEFAULT_CHUNK_SIZE;
+		maxChunksInFlight = 2 * Runtime.getRuntime().availableProcessors();
+	}
+
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	/**
+	 * When true, handler results are passed on in input order. Otherwise they
+	 * are passed on chunk by chunk as soon as each chunk is done.
+	 */
+	public void setOrdered(final boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Bytes of input per task. Chunks grow to hold longer lines.
+	 */
+	public void setChunkSize(final int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Invalid chunk size: "
+					+ chunkSize);
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	public int getMaxChunksInFlight() {
+		return maxChunksInFlight;
+	}
+
+	/**
+	 * Bounds the input held in memory: reading stops while this many chunks
+	 * are queued or being parsed.
+	 */
+	public void setMaxChunksInFlight(final int maxChunksInFlight) {
+		if (maxChunksInFlight < 1) {
+			throw new IllegalArgumentException("Invalid chunks in flight: "
+					+ maxChunksInFlight);
+		}
+		this.maxChunksInFlight = maxChunksInFlight;
+	}
+
+	public long parse(final Path path, final RecordHandler<?> handler)
+			throws IOException, InterruptedException {
+		try (final InputStream is = Files.newInputStream(path)) {
+			return parse(is, handler, null);
+		}
+	}
+
+	public long parse(final InputStream is, final RecordHandler<?> handler)
+			throws IOException, InterruptedException {
+		return parse(is, handler, null);
+	}
+
+	/**
+	 * Hands every record to the handler on a pool thread and its result, if
+	 * results is not null, to results on the calling thread. Returns once
+	 * all records are handled, with the number of records. The first
+	 * exception thrown by the handler or the parser is rethrown here.
+	 */
+	public <T> long parse(final InputStream is,
+			final RecordHandler<? extends T> handler,
+			final Consumer<? super T> results) throws IOException,
+			InterruptedException {
+		final boolean inOrder = ordered;
+		final ArrayDeque<Future<Chunk<T>>> pending = new ArrayDeque<Future<Chunk<T>>>();
+		final CompletionService<Chunk<T>> completed = new ExecutorCompletionService<Chunk<T>>(
+				executor);
+		final ArrayDeque<byte[]> buffers = new ArrayDeque<byte[]>();
+
+		long records = 0;
+		try {
+			byte[] bytes = new byte[chunkSize];
+			int length = 0;
+			boolean endOfInput = false;
+			while (!endOfInput) {
+				while (length < bytes.length && !endOfInput) {
+					final int read = is.read(bytes, length, bytes.length
+							- length);
+					if (read == -1) {
+						endOfInput = true;
+					} else {
+						length += read;
+					}
+				}
+
+				// cut after the last line end, or grow until there is one
+				int end = length;
+				if (!endOfInput) {
+					while (end > 0 && bytes[end - 1] != '\n') {
+						--end;
+					}
+					if (end == 0) {
+						bytes = Arrays.copyOf(bytes, bytes.length * 2);
+						continue;
+					}
+				} else if (end == 0) {
+					break;
+				}
+
+				if (pending.size() == maxChunksInFlight) {
+					records += deliver(await(inOrder, pending, completed),
+							results, buffers);
+				}
+
+				// the next chunk starts with the unfinished line
+				byte[] next = buffers.isEmpty() ? null : buffers.pop();
+				if (next == null || next.length < length - end) {
+					next = new byte[Math.max(chunkSize, length - end)];
+				}
+				System.arraycopy(bytes, end, next, 0, length - end);
+
+				final Chunk<T> chunk = new Chunk<T>(bytes, end, handler,
+						results != null);
+				pending.add(inOrder ? executor.submit(chunk) : completed
+						.submit(chunk));
+				bytes = next;
+				length -= end;
+			}
+
+			while (!pending.isEmpty()) {
+				records += deliver(await(inOrder, pending, completed),
+						results, buffers);
+			}
+			return records;
+		} finally {
+			// only left over when a chunk failed
+			for (final Future<Chunk<T>> future : pending) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private static <T> Chunk<T> await(final boolean inOrder,
+			final ArrayDeque<Future<Chunk<T>>> pending,
+			final CompletionService<Chunk<T>> completed)
+			throws InterruptedException {
+		final Future<Chunk<T>> future = inOrder ? pending.peek() : completed
+				.take();
+		try {
+			final Chunk<T> chunk = future.get();
+			pending.remove(future);
+			return chunk;
+		} catch (final ExecutionException e) {
+			pending.remove(future);
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private static <T> int deliver(final Chunk<T> chunk,
+			final Consumer<? super T> results,
+			final ArrayDeque<byte[]> buffers) {
+		if (results != null) {
+			for (final T result : chunk.results) {
+				results.accept(result);
+			}
+		}
+		buffers.push(chunk.bytes);
+		return chunk.records;
+	}
+
+	/**
+	 * Reads one record. Called on a pool thread, and the reader can only be
+	 * used until the call returns.
+	 */
+	public interface RecordHandler<T> {
+		T handleRecord(StreamingJsonReader record);
+	}
+
+	private class Chunk<T> implements Callable<Chunk<T>> {
+		private final byte[] bytes;
+		private final int length;
+		private final RecordHandler<? extends T> handler;
+		private final List<T> results;
+		private int records;
+
+		private Chunk(final byte[] bytes, final int length,
+				final RecordHandler<? extends T> handler,
+				final boolean keepResults) {
+			this.bytes = bytes;
+			this.length = length;
+			this.handler = handler;
+			results = keepResults ? new ArrayList<T>() : null;
+		}
+
+		@Override
+		public Chunk<T> call() {
+			// one reader per chunk, reset onto each line
+			SynchronousStreamingJsonReader reader = null;
+			int start = 0;
+			while (start < length) {
+				int end = start;
+				while (end < length && bytes[end] != '\n') {
+					++end;
+				}
+
+				if (!isBlank(bytes, start, end)) {
+					if (reader == null) {
+						reader = new SynchronousStreamingJsonReader(factory
+								.createParser(factory.newTokenReader(bytes,
+										start, end - start)));
+					} else {
+						reader.reset(bytes, start, end - start);
+					}
+					final T result = handler.handleRecord(reader);
+					if (results != null) {
+						results.add(result);
+					}
+					++records;
+				}
+				start = end + 1;
+			}
+			return this;
+		}
+	}
+
+	private static boolean isBlank(final byte[] bytes, final int start,
+			final int end) {
+		for (int i = start; i < end; ++i) {
+			if (bytes[i] != ' ' && bytes[i] != '\t' && bytes[i] != '\r') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
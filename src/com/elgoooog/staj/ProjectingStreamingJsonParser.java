@@ -0,0 +1,234 @@
+package com.elgoooog.staj;
+
+import java.util.Arrays;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEventType;
+
+/**
+ * Only emits values matched by a JsonPathProjection, everything inside them,
+ * and the enclosing objects, arrays and keys leading to them. Subtrees that
+ * cannot match are skipped with the raw scan, so they are never tokenized.
+ */
+public class ProjectingStreamingJsonParser extends StreamingJsonParser {
+	private final JsonPathProjection projection;
+
+	// one entry per open container that is being filtered
+	private long[] candidates;
+	private boolean[] arrays;
+	private int[] indexes;
+	private int depth;
+
+	// open containers inside a matched value, which pass through unfiltered
+	private int matchedDepth;
+	private boolean valueMatched;
+	private JsonEventType pending;
+
+	public ProjectingStreamingJsonParser(final TokenReader tokenReader,
+			final JsonPathProjection projection) {
+		super(tokenReader);
+		this.projection = projection;
+		candidates = new long[8];
+		arrays = new boolean[8];
+		indexes = new int[8];
+	}
+
+	public JsonPathProjection getProjection() {
+		return projection;
+	}
+
+	@Override
+	protected void reset() {
+		super.reset();
+		depth = 0;
+		matchedDepth = 0;
+		valueMatched = false;
+		pending = null;
+	}
+
+	@Override
+	protected JsonEventType nextEvent() {
+		if (pending != null) {
+			final JsonEventType type = pending;
+			pending = null;
+			return type;
+		} else if (valueMatched) {
+			valueMatched = false;
+			return matched(super.nextEvent());
+		} else if (matchedDepth > 0) {
+			return matched(super.nextEvent());
+		}
+
+		while (true) {
+			if (depth == 0) {
+				final JsonEventType type = super.nextEvent();
+				if (type == JsonEventType.END
+						|| type == JsonEventType.END_DOCUMENT) {
+					return type;
+				} else if (projection.pathsOfLength(0) != 0) {
+					return matched(type);
+				}
+				push(type, projection.allPaths());
+				return type;
+			} else if (arrays[depth - 1]) {
+				final long matches = matchIndex(indexes[depth - 1]);
+				if (matches == 0 && super.skipValue()) {
+					++indexes[depth - 1];
+					continue;
+				}
+
+				final JsonEventType type = super.nextEvent();
+				if (type == JsonEventType.END_ARRAY) {
+					--depth;
+					return type;
+				}
+				++indexes[depth - 1];
+				if ((matches & projection.pathsOfLength(depth)) != 0) {
+					return matched(type);
+				} else if (isStart(type)) {
+					push(type, matches);
+					return type;
+				}
+				// a scalar cannot match a longer path
+			} else {
+				final JsonEventType type = super.nextEvent();
+				if (type == JsonEventType.END_OBJECT) {
+					--depth;
+					return type;
+				}
+
+				final long matches = matchKey();
+				if (matches == 0) {
+					super.skipValue();
+				} else if ((matches & projection.pathsOfLength(depth)) != 0) {
+					valueMatched = true;
+					return type;
+				} else {
+					// the key text stays in the buffer unless the value is a
+					// scalar, which is dropped anyway
+					final JsonEventType value = super.nextEvent();
+					if (isStart(value)) {
+						push(value, matches);
+						pending = value;
+						return type;
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean skipValue() {
+		if (pending != null) {
+			if (!isStart(pending)) {
+				return false;
+			}
+			pending = null;
+			super.skipChildren();
+			--depth;
+			return true;
+		} else if (valueMatched) {
+			valueMatched = false;
+			return super.skipValue();
+		} else if (matchedDepth > 0) {
+			return super.skipValue();
+		}
+
+		final JsonEventType type = nextEvent();
+		if (isStart(type)) {
+			skipChildren();
+			return true;
+		} else if (type == JsonEventType.END
+				|| type == JsonEventType.END_OBJECT
+				|| type == JsonEventType.END_ARRAY
+				|| type == JsonEventType.END_DOCUMENT) {
+			pending = type;
+			return false;
+		} else if (type == JsonEventType.KEY) {
+			throw new IllegalStateException(
+					"Expected a value, but the next event is a key");
+		}
+		return true;
+	}
+
+	@Override
+	public JsonEventType skipChildren() {
+		if (pending == JsonEventType.END
+				|| pending == JsonEventType.END_DOCUMENT) {
+			throw new IllegalStateException("Not inside an object or array");
+		} else if (pending == JsonEventType.END_OBJECT
+				|| pending == JsonEventType.END_ARRAY) {
+			final JsonEventType type = pending;
+			pending = null;
+			return type;
+		} else if (pending != null) {
+			// the caller has not seen this container start yet
+			pending = null;
+			super.skipChildren();
+			--depth;
+		}
+
+		valueMatched = false;
+		final JsonEventType type = super.skipChildren();
+		if (matchedDepth > 0) {
+			--matchedDepth;
+		} else {
+			--depth;
+		}
+		return type;
+	}
+
+	private JsonEventType matched(final JsonEventType type) {
+		if (isStart(type)) {
+			++matchedDepth;
+		} else if (type == JsonEventType.END_OBJECT
+				|| type == JsonEventType.END_ARRAY) {
+			--matchedDepth;
+		}
+		return type;
+	}
+
+	private long matchIndex(final int index) {
+		long matches = 0;
+		for (long paths = candidates[depth - 1]; paths != 0; paths &= paths
+				- 1) {
+			final int path = Long.numberOfTrailingZeros(paths);
+			if (projection.matchesIndex(path, depth - 1, index)) {
+				matches |= 1L << path;
+			}
+		}
+		return matches;
+	}
+
+	private long matchKey() {
+		final TokenReader tokenReader = getTokenReader();
+		final char[] text = tokenReader.getTextCharacters();
+		final int length = tokenReader.getTextLength();
+
+		long matches = 0;
+		for (long paths = candidates[depth - 1]; paths != 0; paths &= paths
+				- 1) {
+			final int path = Long.numberOfTrailingZeros(paths);
+			if (projection.matchesKey(path, depth - 1, text, length)) {
+				matches |= 1L << path;
+			}
+		}
+		return matches;
+	}
+
+	private void push(final JsonEventType type, final long paths) {
+		if (depth == arrays.length) {
+			candidates = Arrays.copyOf(candidates, depth * 2);
+			arrays = Arrays.copyOf(arrays, depth * 2);
+			indexes = Arrays.copyOf(indexes, depth * 2);
+		}
+		candidates[depth] = paths;
+		arrays[depth] = type == JsonEventType.START_ARRAY;
+		indexes[depth] = 0;
+		++depth;
+	}
+
+	private static boolean isStart(final JsonEventType type) {
+		return type == JsonEventType.START_OBJECT
+				|| type == JsonEventType.START_ARRAY;
+	}
+}
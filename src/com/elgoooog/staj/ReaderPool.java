@@ -0,0 +1,103 @@
+package com.elgoooog.staj;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Keeps released synchronous readers and cursors, with their tokenizer and
+ * parser buffers, so that StreamingJsonReaderFactory can reset them onto new
+ * input instead of building new ones.
+ */
+public abstract class ReaderPool {
+	/**
+	 * Keeps one reader and one cursor per thread, without any locking.
+	 */
+	public static ReaderPool threadLocal() {
+		return new ThreadLocalPool();
+	}
+
+	/**
+	 * Keeps up to maxSize readers and as many cursors for all threads.
+	 */
+	public static ReaderPool shared(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Invalid max size: " + maxSize);
+		}
+		return new SharedPool(maxSize);
+	}
+
+	protected abstract SynchronousStreamingJsonReader pollReader();
+
+	protected abstract void offerReader(SynchronousStreamingJsonReader reader);
+
+	protected abstract StreamingJsonCursor pollCursor();
+
+	protected abstract void offerCursor(StreamingJsonCursor cursor);
+
+	private static class ThreadLocalPool extends ReaderPool {
+		private final ThreadLocal<Slot> slots = ThreadLocal
+				.withInitial(Slot::new);
+
+		@Override
+		protected SynchronousStreamingJsonReader pollReader() {
+			final Slot slot = slots.get();
+			final SynchronousStreamingJsonReader reader = slot.reader;
+			slot.reader = null;
+			return reader;
+		}
+
+		@Override
+		protected void offerReader(final SynchronousStreamingJsonReader reader) {
+			slots.get().reader = reader;
+		}
+
+		@Override
+		protected StreamingJsonCursor pollCursor() {
+			final Slot slot = slots.get();
+			final StreamingJsonCursor cursor = slot.cursor;
+			slot.cursor = null;
+			return cursor;
+		}
+
+		@Override
+		protected void offerCursor(final StreamingJsonCursor cursor) {
+			slots.get().cursor = cursor;
+		}
+	}
+
+	private static class Slot {
+		private SynchronousStreamingJsonReader reader;
+		private StreamingJsonCursor cursor;
+	}
+
+	private static class SharedPool extends ReaderPool {
+		private final ArrayBlockingQueue<SynchronousStreamingJsonReader> readers;
+		private final ArrayBlockingQueue<StreamingJsonCursor> cursors;
+
+		private SharedPool(final int maxSize) {
+			readers = new ArrayBlockingQueue<SynchronousStreamingJsonReader>(
+					maxSize);
+			cursors = new ArrayBlockingQueue<StreamingJsonCursor>(maxSize);
+		}
+
+		@Override
+		protected SynchronousStreamingJsonReader pollReader() {
+			return readers.poll();
+		}
+
+		@Override
+		protected void offerReader(final SynchronousStreamingJsonReader reader) {
+			// a full pool drops the reader
+			readers.offer(reader);
+		}
+
+		@Override
+		protected StreamingJsonCursor pollCursor() {
+			return cursors.poll();
+		}
+
+		@Override
+		protected void offerCursor(final StreamingJsonCursor cursor) {
+			cursors.offer(cursor);
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package com.elgoooog.staj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Base64;
+
+/**
+ * Pull API in the style of XMLStreamReader. next() returns an event code and
+ * the accessors read straight from the tokenizer's buffer, so nothing is
+ * allocated unless a String is asked for.
+ */
+public class StreamingJsonCursor implements Closeable {
+	public static final int START = 0;
+	public static final int END = 1;
+	public static final int START_OBJECT = 2;
+	public static final int END_OBJECT = 3;
+	public static final int START_ARRAY = 4;
+	public static final int END_ARRAY = 5;
+	public static final int KEY = 6;
+	public static final int STRING = 7;
+	public static final int NUMBER = 8;
+	public static final int TRUE = 9;
+	public static final int FALSE = 10;
+	public static final int NULL = 11;
+	public static final int END_DOCUMENT = 12;
+
+	private static final int BASE64_CHUNK = 8192;
+
+	private final TokenReader tokenReader;
+	private final StreamingJsonParser parser;
+	private int eventType;
+
+	public StreamingJsonCursor(final TokenReader tokenReader) {
+		this(new StreamingJsonParser(tokenReader));
+	}
+
+	public StreamingJsonCursor(final StreamingJsonParser parser) {
+		this.parser = parser;
+		tokenReader = parser.getTokenReader();
+		eventType = START;
+	}
+
+	public int next() {
+		if (eventType == END) {
+			throw new IllegalStateException(
+					"JsonEvent END has already been sent.  There is nothing left.");
+		}
+
+		eventType = parser.nextEvent().code;
+		return eventType;
+	}
+
+	/**
+	 * Skips the value the next call to next() would have started without
+	 * decoding it. The current event is left as it was. Returns false when
+	 * the enclosing array or the document has no more values.
+	 */
+	public boolean skipValue() {
+		if (eventType == END) {
+			throw new IllegalStateException(
+					"JsonEvent END has already been sent.  There is nothing left.");
+		}
+		return parser.skipValue();
+	}
+
+	/**
+	 * Skips the rest of the innermost open object or array without decoding
+	 * it, leaving the cursor on its END_OBJECT or END_ARRAY.
+	 */
+	public int skipChildren() {
+		if (eventType == END) {
+			throw new IllegalStateException(
+					"JsonEvent END has already been sent.  There is nothing left.");
+		}
+
+		eventType = parser.skipChildren().code;
+		return eventType;
+	}
+
+	protected void setEventType(final int eventType) {
+		this.eventType = eventType;
+	}
+
+	protected StreamingJsonParser getParser() {
+		return parser;
+	}
+
+	/**
+	 * Starts over on a new stream, reusing the tokenizer and parser.
+	 */
+	public void reset(final InputStream is) {
+		parser.reset(is);
+		eventType = START;
+	}
+
+	public void reset(final byte[] json, final int offset, final int length) {
+		parser.reset(json, offset, length);
+		eventType = START;
+	}
+
+	public boolean hasNext() {
+		return eventType != END;
+	}
+
+	public int getEventType() {
+		return eventType;
+	}
+
+	public boolean hasText() {
+		return eventType == KEY || eventType == STRING || eventType == NUMBER;
+	}
+
+	public String getText() {
+		requireText();
+		return eventType == KEY ? parser.getKeyText() : tokenReader.getText();
+	}
+
+	/**
+	 * The returned array is the tokenizer's own buffer and is only valid until
+	 * the next call to next().
+	 */
+	public char[] getTextCharacters() {
+		requireText();
+		return tokenReader.getTextCharacters();
+	}
+
+	public int getTextOffset() {
+		requireText();
+		return 0;
+	}
+
+	public int getTextLength() {
+		requireText();
+		return tokenReader.getTextLength();
+	}
+
+	/**
+	 * Compares the current text with the given characters without building
+	 * a String, and with lazy strings usually without decoding it either.
+	 */
+	public boolean contentEquals(final CharSequence chars) {
+		requireText();
+		return tokenReader.textEquals(chars);
+	}
+
+	public boolean startsWith(final CharSequence prefix) {
+		requireText();
+		return tokenReader.textStartsWith(prefix);
+	}
+
+	/**
+	 * Reads the current text a chunk at a time, from where the last call
+	 * stopped, returning the number of characters read or -1 once all of it
+	 * has been. With streamed strings a STRING value is decoded from the
+	 * stream as it is read, in bounded memory, and its other text accessors
+	 * then fail.
+	 */
+	public int readTextChunk(final char[] chars, final int offset,
+			final int length) {
+		requireText();
+		try {
+			return tokenReader.readText(chars, offset, length);
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public int readTextChunk(final char[] chars) {
+		return readTextChunk(chars, 0, chars.length);
+	}
+
+	/**
+	 * The current text through readTextChunk(), valid until the next call to
+	 * next().
+	 */
+	public Reader getValueAsReader() {
+		requireText();
+		return new TextReader();
+	}
+
+	/**
+	 * Decodes the current text as base64 into the stream, a chunk at a time,
+	 * and returns the number of bytes written. Line breaks and any other
+	 * characters outside the base64 alphabet are ignored, as in MIME.
+	 */
+	public long readBase64(final OutputStream out) throws IOException {
+		requireText();
+		final InputStream decoded = Base64.getMimeDecoder().wrap(
+				new TextBytes());
+		final byte[] bytes = new byte[BASE64_CHUNK];
+		long total = 0;
+		int count;
+		while ((count = decoded.read(bytes)) != -1) {
+			out.write(bytes, 0, count);
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * True when the current number is an integer literal within long range.
+	 */
+	public boolean fitsInLong() {
+		requireNumber();
+		return tokenReader.fitsInLong();
+	}
+
+	public long getLong() {
+		requireNumber();
+		return tokenReader.getLong();
+	}
+
+	public double getDouble() {
+		requireNumber();
+		return tokenReader.getDouble();
+	}
+
+	public BigDecimal getBigDecimal() {
+		requireNumber();
+		return tokenReader.getBigDecimal();
+	}
+
+	private void requireNumber() {
+		if (eventType != NUMBER) {
+			throw new IllegalStateException("Current event is not a number");
+		}
+	}
+
+	private void requireText() {
+		if (!hasText()) {
+			throw new IllegalStateException("Current event has no text");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		tokenReader.close();
+	}
+
+	private class TextReader extends Reader {
+		@Override
+		public int read(final char[] chars, final int offset, final int length)
+				throws IOException {
+			return tokenReader.readText(chars, offset, length);
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * The text as one byte per character, for the base64 decoder. Characters
+	 * past ASCII come out as a byte it ignores.
+	 */
+	private class TextBytes extends InputStream {
+		private final char[] chars = new char[BASE64_CHUNK];
+
+		@Override
+		public int read() throws IOException {
+			if (tokenReader.readText(chars, 0, 1) == -1) {
+				return -1;
+			}
+			return chars[0] < 0x80 ? chars[0] : 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int offset, final int length)
+				throws IOException {
+			final int count = tokenReader.readText(chars, 0, Math.min(length,
+					chars.length));
+			for (int i = 0; i < count; ++i) {
+				final char c = chars[i];
+				b[offset + i] = c < 0x80 ? (byte) c : (byte) 0xFF;
+			}
+			return count;
+		}
+	}
+}
@@ -1,142 +1,533 @@
-package com.elgoooog.staj;
-
-import java.io.IOException;
-import java.util.LinkedList;
-
-import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
-import com.elgoooog.staj.TokenReader.Token;
-import com.elgoooog.staj.TokenReader.TokenType;
-
-public class StreamingJsonParser {
-	private static final Integer START_ARRAY = 1;
-	private static final Integer START_OBJECT = 2;
-	private static final Integer KEY = 3;
-	private static final Integer MID_ARRAY = 4;
-	private static final Integer MID_OBJECT = 5;
-
-	private final TokenReader tokenReader;
-	private final LinkedList<Integer> states;
-
-	public StreamingJsonParser(final TokenReader tokenReader) {
-		this.tokenReader = tokenReader;
-		states = new LinkedList<>();
-	}
-
-	public StreamingJsonReader.JsonEvent readNext() {
-		final Token token;
-		try {
-			token = tokenReader.readNext();
-		} catch (final IOException e) {
-			throw new RuntimeException(e);
-		}
-
-		if (states.size() > 0) {
-			final Integer state = states.peek();
-
-			if (state == START_ARRAY) {
-				states.pop();
-				if (token.type == TokenType.CLOSE_BRACKET) {
-					return JsonEvent.END_ARRAY;
-				}
-				states.push(MID_ARRAY);
-				return getValue(token);
-			} else if (state == START_OBJECT) {
-				states.pop();
-				if (token.type == TokenType.CLOSE_BRACE) {
-					return JsonEvent.END_OBJECT;
-				}
-				states.push(MID_OBJECT);
-				return getKey(token);
-			} else if (state == KEY) {
-				if (token.type == TokenType.COLON) {
-					states.pop();
-					try {
-						return getValue(tokenReader.readNext());
-					} catch (final IOException e) {
-						throw new RuntimeException(e);
-					}
-				} else {
-					throw new JsonParseException(
-							"Illegal state:  Expected colon, not found");
-				}
-			} else if (state == MID_ARRAY) {
-				if (token.type == TokenType.COMMA) {
-					try {
-						return getValue(tokenReader.readNext());
-					} catch (final IOException e) {
-						throw new RuntimeException(e);
-					}
-				} else if (token.type == TokenType.CLOSE_BRACKET) {
-					states.pop();
-					return JsonEvent.END_ARRAY;
-				} else {
-					throw new JsonParseException(
-							"Illegal state:  Expected comma or Close Bracket, not found");
-				}
-			} else if (state == MID_OBJECT) {
-				if (token.type == TokenType.COMMA) {
-					try {
-						return getKey(tokenReader.readNext());
-					} catch (final IOException e) {
-						throw new RuntimeException(e);
-					}
-				} else if (token.type == TokenType.CLOSE_BRACE) {
-					states.pop();
-					return JsonEvent.END_OBJECT;
-				} else {
-					throw new JsonParseException(
-							"Illegal state:  Expected comma, not found");
-				}
-			} else {
-				throw new JsonParseException("I'm kinda lost here...");
-			}
-		} else {
-			// need either an Open Brace or an Open Bracket
-			if (token.type == TokenType.OPEN_BRACE) {
-				states.push(START_OBJECT);
-				return JsonEvent.START_OBJECT;
-			} else if (token.type == TokenType.OPEN_BRACKET) {
-				states.push(START_ARRAY);
-				return JsonEvent.START_ARRAY;
-			} else if (token.type == TokenType.END) {
-				return JsonEvent.END;
-			} else {
-				throw new JsonParseException(
-						"Illegal state:  Expected Open Bracket/Brace, not found.");
-			}
-		}
-	}
-
-	protected JsonEvent getValue(final Token token) {
-		if (token.type == TokenType.OPEN_BRACE) {
-			states.push(START_OBJECT);
-			return JsonEvent.START_OBJECT;
-		} else if (token.type == TokenType.OPEN_BRACKET) {
-			states.push(START_ARRAY);
-			return JsonEvent.START_ARRAY;
-		} else if (token.type == TokenType.NULL) {
-			return JsonEvent.NULL;
-		} else if (token.type == TokenType.FALSE) {
-			return JsonEvent.FALSE;
-		} else if (token.type == TokenType.TRUE) {
-			return JsonEvent.TRUE;
-		} else if (token.type == TokenType.STRING) {
-			return JsonEvent.string(token.value);
-		} else if (token.type == TokenType.NUMBER) {
-			return JsonEvent.number(token.value);
-		} else {
-			throw new JsonParseException(
-					"Illegal state:  Expected Value, not found.");
-		}
-	}
-
-	protected JsonEvent getKey(final Token token) {
-		if (TokenType.STRING == token.type) {
-			states.push(KEY);
-			return JsonEvent.key(token.value);
-		} else {
-			throw new JsonParseException(
-					"Illegal state:  Expected String, not found.");
-		}
-	}
-}
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+import com.elgoooog.staj.StreamingJsonReader.JsonEventType;
+import com.elgoooog.staj.TokenReader.TokenType;
+
+public class StreamingJsonParser {
+	public static final int DEFAULT_MAX_DEPTH = 1000;
+
+	private static final byte ROOT = 0;
+	private static final byte START_ARRAY = 1;
+	private static final byte START_OBJECT = 2;
+	private static final byte KEY = 3;
+	private static final byte MID_ARRAY = 4;
+	private static final byte MID_OBJECT = 5;
+	private static final byte AFTER_ROOT = 6;
+	private static final int STATES = 7;
+
+	// what nextEvent() does for each state and token
+	private static final byte ERROR = 0;
+	private static final byte ROOT_VALUE = 1;
+	private static final byte FIRST_VALUE = 2;
+	private static final byte NEXT_VALUE = 3;
+	private static final byte COLON = 4;
+	private static final byte FIRST_KEY = 5;
+	private static final byte NEXT_KEY = 6;
+	private static final byte CLOSE_ARRAY = 7;
+	private static final byte CLOSE_OBJECT = 8;
+	private static final byte DOCUMENT_END = 9;
+	private static final byte NEXT_DOCUMENT = 10;
+
+	private static final byte[] TRANSITIONS = transitions();
+	private static final String[] ERRORS = {
+			"Illegal state:  Expected Open Bracket/Brace, not found.",
+			"Illegal state:  Expected Value, not found.",
+			"Illegal state:  Expected String, not found.",
+			"Illegal state:  Expected colon, not found",
+			"Illegal state:  Expected comma or Close Bracket, not found",
+			"Illegal state:  Expected comma, not found",
+			"Illegal state:  Expected end of input, not found." };
+	// the token each byte starts, by byte + 1 so that -1 is END
+	private static final byte[] BYTE_TOKENS = byteTokens();
+
+	private final TokenReader tokenReader;
+	// one state per open object or array; KEY replaces an object's state
+	// until its value has started
+	private byte[] states;
+	private int depth;
+	private int maxDepth;
+	private KeySymbolTable keySymbolTable;
+	// ROOT until the first root value starts, AFTER_ROOT from then on
+	private byte rootState;
+	private boolean multipleDocuments;
+	private boolean strictEnd;
+	private boolean documentEnded;
+	private boolean lazyStrings;
+	private boolean streamedStrings;
+
+	public StreamingJsonParser(final TokenReader tokenReader) {
+		this.tokenReader = tokenReader;
+		states = new byte[16];
+		depth = 0;
+		maxDepth = DEFAULT_MAX_DEPTH;
+		rootState = ROOT;
+	}
+
+	/**
+	 * Starts over on a new stream, keeping the TokenReader, its buffers and
+	 * every setting.
+	 */
+	public void reset(final InputStream is) {
+		tokenReader.reset(is);
+		reset();
+	}
+
+	public void reset(final byte[] json, final int offset, final int length) {
+		tokenReader.reset(json, offset, length);
+		reset();
+	}
+
+	/**
+	 * Forgets the document in progress, once the TokenReader has been reset.
+	 */
+	protected void reset() {
+		depth = 0;
+		rootState = ROOT;
+		documentEnded = false;
+	}
+
+	public StreamingJsonReader.JsonEvent readNext() {
+		final JsonEventType type = nextEvent();
+
+		switch (type.code) {
+		case StreamingJsonCursor.STRING:
+			return JsonEvent.string(tokenReader.getText());
+		case StreamingJsonCursor.NUMBER:
+			if (tokenReader.fitsInLong()) {
+				return JsonEvent.number(tokenReader.getText(),
+						tokenReader.getLong());
+			}
+			return JsonEvent.number(tokenReader.getText(),
+					tokenReader.getNumberMantissa(),
+					tokenReader.getNumberExponent(),
+					tokenReader.isNumberTruncated());
+		case StreamingJsonCursor.KEY:
+			return JsonEvent.key(getKeyText());
+		default:
+			return JsonEvent.of(type);
+		}
+	}
+
+	public KeySymbolTable getKeySymbolTable() {
+		return keySymbolTable;
+	}
+
+	/**
+	 * Keys are looked up in the table instead of building a new String each
+	 * time. The table may be shared between parsers.
+	 */
+	public void setKeySymbolTable(final KeySymbolTable keySymbolTable) {
+		this.keySymbolTable = keySymbolTable;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Objects and arrays nested deeper than this fail with a
+	 * JsonParseException.
+	 */
+	public void setMaxDepth(final int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Invalid max depth: " + maxDepth);
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	public boolean isMultipleDocuments() {
+		return multipleDocuments;
+	}
+
+	/**
+	 * Accepts any number of root values one after another, as in
+	 * {@code {...}{...}[...]}, with an END_DOCUMENT event after each one.
+	 * END only comes at the end of the input. Otherwise END follows the root
+	 * value and the rest of the input is left unread.
+	 */
+	public void setMultipleDocuments(final boolean multipleDocuments) {
+		this.multipleDocuments = multipleDocuments;
+	}
+
+	public boolean isStrictEnd() {
+		return strictEnd;
+	}
+
+	/**
+	 * Without multiple documents, reads on after the root value to check that
+	 * only whitespace follows it; anything else is a JsonParseException.
+	 */
+	public void setStrictEnd(final boolean strictEnd) {
+		this.strictEnd = strictEnd;
+	}
+
+	public boolean isLazyStrings() {
+		return lazyStrings;
+	}
+
+	/**
+	 * STRING values are left undecoded in the TokenReader's buffer until
+	 * their text is asked for, which saves the copy for values that are only
+	 * compared or skipped. Malformed escapes and UTF-8 are then only reported
+	 * for strings that are read.
+	 */
+	public void setLazyStrings(final boolean lazyStrings) {
+		this.lazyStrings = lazyStrings;
+	}
+
+	public boolean isStreamedStrings() {
+		return streamedStrings;
+	}
+
+	/**
+	 * STRING values are left in the stream until their text is asked for,
+	 * so that a cursor can read a value of any size a chunk at a time with
+	 * readTextChunk(). Whatever is left unread is skipped by the next event.
+	 * Takes precedence over lazy strings.
+	 */
+	public void setStreamedStrings(final boolean streamedStrings) {
+		this.streamedStrings = streamedStrings;
+	}
+
+	protected int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Packs the state that nextEvent() and skipChildren() change, so that an
+	 * event cut short by missing input can be parsed again after rewind().
+	 */
+	protected long mark() {
+		final int top = depth > 0 ? states[depth - 1] : 0;
+		return (long) depth << 32 | top << 16 | rootState << 8
+				| (documentEnded ? 1 : 0);
+	}
+
+	protected void rewind(final long mark) {
+		depth = (int) (mark >>> 32);
+		if (depth > 0) {
+			states[depth - 1] = (byte) (mark >>> 16);
+		}
+		rootState = (byte) (mark >>> 8);
+		documentEnded = (mark & 1) != 0;
+	}
+
+	protected TokenReader getTokenReader() {
+		return tokenReader;
+	}
+
+	protected String getKeyText() {
+		if (keySymbolTable == null) {
+			return tokenReader.getText();
+		}
+		return keySymbolTable.intern(tokenReader.getTextCharacters(), 0,
+				tokenReader.getTextLength());
+	}
+
+	/**
+	 * Advances without allocating. The text of STRING, NUMBER and KEY events
+	 * stays in the TokenReader's text buffer until the next call.
+	 */
+	protected JsonEventType nextEvent() {
+		if (documentEnded) {
+			// sent before reading on, so a stream can pause between documents
+			documentEnded = false;
+			return JsonEventType.END_DOCUMENT;
+		} else if (isRootClosed()) {
+			return JsonEventType.END;
+		}
+
+		try {
+			if (streamedStrings) {
+				tokenReader.finishString();
+			}
+
+			final int c = tokenReader.nextNonWhitespace();
+			final byte state = depth > 0 ? states[depth - 1] : rootState;
+
+			switch (TRANSITIONS[state * TokenType.COUNT + tokenCode(c)]) {
+			case NEXT_DOCUMENT:
+				if (!multipleDocuments) {
+					throw new JsonParseException(ERRORS[AFTER_ROOT]);
+				}
+				return value(c);
+			case ROOT_VALUE:
+				rootState = AFTER_ROOT;
+				return value(c);
+			case FIRST_VALUE:
+				states[depth - 1] = MID_ARRAY;
+				return value(c);
+			case NEXT_VALUE:
+				return value(tokenReader.nextNonWhitespace());
+			case COLON:
+				states[depth - 1] = MID_OBJECT;
+				return value(tokenReader.nextNonWhitespace());
+			case FIRST_KEY:
+				return key(c);
+			case NEXT_KEY:
+				return key(tokenReader.nextNonWhitespace());
+			case CLOSE_ARRAY:
+				if (--depth == 0) {
+					documentEnded = multipleDocuments;
+				}
+				return JsonEventType.END_ARRAY;
+			case CLOSE_OBJECT:
+				if (--depth == 0) {
+					documentEnded = multipleDocuments;
+				}
+				return JsonEventType.END_OBJECT;
+			case DOCUMENT_END:
+				return JsonEventType.END;
+			default:
+				throw new JsonParseException(ERRORS[state]);
+			}
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Skips the value that the next call would have started, scanning
+	 * containers to their close without building tokens. Returns false, and
+	 * skips nothing, when the enclosing array or the document has no more
+	 * values.
+	 */
+	public boolean skipValue() {
+		try {
+			if (streamedStrings) {
+				tokenReader.finishString();
+			}
+
+			if (depth == 0) {
+				final int c = documentEnded || isRootClosed() ? -1
+						: tokenReader.peek();
+				if (c == -1) {
+					return false;
+				} else if (rootState == AFTER_ROOT && !multipleDocuments) {
+					throw new JsonParseException(ERRORS[AFTER_ROOT]);
+				} else if (c != '{' && c != '[') {
+					throw new JsonParseException(ERRORS[ROOT]);
+				}
+				rootState = AFTER_ROOT;
+				tokenReader.skipValue();
+				documentEnded = multipleDocuments;
+				return true;
+			} else {
+				final byte state = states[depth - 1];
+
+				if (state == KEY) {
+					if (tokenReader.nextNonWhitespace() != ':') {
+						throw new JsonParseException(
+								"Illegal state:  Expected colon, not found");
+					}
+					states[depth - 1] = MID_OBJECT;
+				} else if (state == START_ARRAY) {
+					if (tokenReader.peek() == ']') {
+						return false;
+					}
+					states[depth - 1] = MID_ARRAY;
+				} else if (state == MID_ARRAY) {
+					if (tokenReader.peek() == ']') {
+						return false;
+					} else if (tokenReader.nextNonWhitespace() != ',') {
+						throw new JsonParseException(
+								"Illegal state:  Expected comma or Close Bracket, not found");
+					}
+				} else {
+					throw new IllegalStateException(
+							"Expected a value, but the next event is a key");
+				}
+			}
+
+			tokenReader.skipValue();
+			return true;
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Skips the rest of the innermost open object or array, including its
+	 * close, and returns END_OBJECT or END_ARRAY accordingly.
+	 */
+	public JsonEventType skipChildren() {
+		if (depth == 0) {
+			throw new IllegalStateException("Not inside an object or array");
+		}
+
+		try {
+			if (streamedStrings) {
+				tokenReader.finishString();
+			}
+			tokenReader.skipToClose();
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		final byte state = states[--depth];
+		if (depth == 0) {
+			documentEnded = multipleDocuments;
+		}
+		return state == START_ARRAY || state == MID_ARRAY ? JsonEventType.END_ARRAY
+				: JsonEventType.END_OBJECT;
+	}
+
+	/**
+	 * True once a single root value has closed and whatever follows it is to
+	 * be left unread.
+	 */
+	private boolean isRootClosed() {
+		return depth == 0 && rootState == AFTER_ROOT && !multipleDocuments
+				&& !strictEnd;
+	}
+
+	/**
+	 * Scans the value starting with the given, already consumed, byte.
+	 */
+	private JsonEventType value(final int c) throws IOException {
+		switch (c) {
+		case '{':
+			push(START_OBJECT);
+			return JsonEventType.START_OBJECT;
+		case '[':
+			push(START_ARRAY);
+			return JsonEventType.START_ARRAY;
+		case '"':
+			if (streamedStrings) {
+				tokenReader.openString();
+			} else if (lazyStrings) {
+				tokenReader.scanStringLazily();
+			} else {
+				tokenReader.scanString();
+			}
+			return JsonEventType.STRING;
+		case '1':
+		case '2':
+		case '3':
+		case '4':
+		case '5':
+		case '6':
+		case '7':
+		case '8':
+		case '9':
+		case '0':
+		case '-':
+			tokenReader.unread();
+			tokenReader.scanNumber();
+			return JsonEventType.NUMBER;
+		case 'n':
+			tokenReader.unread();
+			tokenReader.parseExactWord("null");
+			return JsonEventType.NULL;
+		case 't':
+			tokenReader.unread();
+			tokenReader.parseExactWord("true");
+			return JsonEventType.TRUE;
+		case 'f':
+			tokenReader.unread();
+			tokenReader.parseExactWord("false");
+			return JsonEventType.FALSE;
+		default:
+			tokenCode(c);
+			throw new JsonParseException(
+					"Illegal state:  Expected Value, not found.");
+		}
+	}
+
+	private JsonEventType key(final int c) throws IOException {
+		if (c == '"') {
+			tokenReader.scanString();
+			states[depth - 1] = KEY;
+			return JsonEventType.KEY;
+		}
+
+		tokenCode(c);
+		throw new JsonParseException(
+				"Illegal state:  Expected String, not found.");
+	}
+
+	private void push(final byte state) {
+		if (depth >= maxDepth) {
+			throw new JsonParseException("Nesting deeper than " + maxDepth
+					+ " levels");
+		} else if (depth == states.length) {
+			states = Arrays.copyOf(states, Math.min(depth * 2, maxDepth));
+		}
+		states[depth++] = state;
+	}
+
+	private static byte[] transitions() {
+		final byte[] table = new byte[STATES * TokenType.COUNT];
+
+		set(table, ROOT, TokenType.OPEN_BRACE, ROOT_VALUE);
+		set(table, ROOT, TokenType.OPEN_BRACKET, ROOT_VALUE);
+		set(table, ROOT, TokenType.END, DOCUMENT_END);
+
+		set(table, AFTER_ROOT, TokenType.OPEN_BRACE, NEXT_DOCUMENT);
+		set(table, AFTER_ROOT, TokenType.OPEN_BRACKET, NEXT_DOCUMENT);
+		set(table, AFTER_ROOT, TokenType.END, DOCUMENT_END);
+
+		for (final TokenType token : new TokenType[] { TokenType.OPEN_BRACE,
+				TokenType.OPEN_BRACKET, TokenType.NULL, TokenType.FALSE,
+				TokenType.TRUE, TokenType.STRING, TokenType.NUMBER }) {
+			set(table, START_ARRAY, token, FIRST_VALUE);
+		}
+		set(table, START_ARRAY, TokenType.CLOSE_BRACKET, CLOSE_ARRAY);
+
+		set(table, START_OBJECT, TokenType.STRING, FIRST_KEY);
+		set(table, START_OBJECT, TokenType.CLOSE_BRACE, CLOSE_OBJECT);
+
+		set(table, KEY, TokenType.COLON, COLON);
+
+		set(table, MID_ARRAY, TokenType.COMMA, NEXT_VALUE);
+		set(table, MID_ARRAY, TokenType.CLOSE_BRACKET, CLOSE_ARRAY);
+
+		set(table, MID_OBJECT, TokenType.COMMA, NEXT_KEY);
+		set(table, MID_OBJECT, TokenType.CLOSE_BRACE, CLOSE_OBJECT);
+
+		return table;
+	}
+
+	private static byte[] byteTokens() {
+		final byte[] tokens = new byte[257];
+		Arrays.fill(tokens, (byte) -1);
+		tokens[0] = (byte) TokenType.END.code;
+		tokens['{' + 1] = (byte) TokenType.OPEN_BRACE.code;
+		tokens['}' + 1] = (byte) TokenType.CLOSE_BRACE.code;
+		tokens['[' + 1] = (byte) TokenType.OPEN_BRACKET.code;
+		tokens[']' + 1] = (byte) TokenType.CLOSE_BRACKET.code;
+		tokens[':' + 1] = (byte) TokenType.COLON.code;
+		tokens[',' + 1] = (byte) TokenType.COMMA.code;
+		tokens['"' + 1] = (byte) TokenType.STRING.code;
+		tokens['-' + 1] = (byte) TokenType.NUMBER.code;
+		for (int c = '0'; c <= '9'; ++c) {
+			tokens[c + 1] = (byte) TokenType.NUMBER.code;
+		}
+		tokens['n' + 1] = (byte) TokenType.NULL.code;
+		tokens['t' + 1] = (byte) TokenType.TRUE.code;
+		tokens['f' + 1] = (byte) TokenType.FALSE.code;
+		return tokens;
+	}
+
+	/**
+	 * The code of the token starting with the given byte, failing the same
+	 * way TokenReader does for bytes that start no token.
+	 */
+	private static int tokenCode(final int c) {
+		final int code = BYTE_TOKENS[c + 1];
+		if (code < 0) {
+			throw new JsonParseException("not legal");
+		}
+		return code;
+	}
+
+	private static void set(final byte[] table, final byte state,
+			final TokenType token, final byte action) {
+		table[state * TokenType.COUNT + token.code] = action;
+	}
+}
@@ -1,153 +1,290 @@
-package com.elgoooog.staj;
-
-import java.util.LinkedList;
-
-public class StreamingJsonReader {
-	private final LinkedList<JsonEvent> jsonEvents;
-	private final TokenReader tokenReader;
-	private final int bufferSize;
-	private volatile boolean done;
-
-	public StreamingJsonReader(final TokenReader reader,
-			final int eventsToBuffer) {
-		jsonEvents = new LinkedList<>();
-		tokenReader = reader;
-		bufferSize = eventsToBuffer > 1 ? eventsToBuffer : 1;
-		done = false;
-		jsonEvents.add(JsonEvent.START);
-		new ReaderThread().start();
-	}
-
-	public JsonEvent next() {
-		synchronized (this) {
-			while (true) {
-				if (jsonEvents.size() > 0) {
-					final JsonEvent event = jsonEvents.removeFirst();
-					notifyAll();
-					return event;
-				} else if (done) {
-					throw new IllegalStateException(
-							"JsonEvent END has already been sent.  There is nothing left.");
-				} else {
-					doWait();
-				}
-			}
-		}
-	}
-
-	protected class ReaderThread extends Thread {
-		private final StreamingJsonParser parser = new StreamingJsonParser(
-				tokenReader);
-
-		@Override
-		public void run() {
-			while (!done) {
-				synchronized (StreamingJsonReader.this) {
-					if (jsonEvents.size() < bufferSize) {
-						try {
-							final JsonEvent event = parser.readNext();
-							if (event == JsonEvent.END) {
-								done = true;
-							}
-
-							jsonEvents.add(event);
-						} finally {
-							StreamingJsonReader.this.notifyAll();
-						}
-					} else {
-						doWait();
-					}
-				}
-			}
-		}
-	}
-
-	protected void doWait() {
-		while (true) {
-			try {
-				wait();
-				return;
-			} catch (final InterruptedException e) {
-				// keep going
-			}
-		}
-	}
-
-	public static class JsonEvent {
-		public static final JsonEvent START = new JsonEvent("start",
-				JsonEventType.START);
-		public static final JsonEvent END = new JsonEvent("end",
-				JsonEventType.END);
-		public static final JsonEvent START_OBJECT = new JsonEvent("startObj",
-				JsonEventType.START_OBJECT);
-		public static final JsonEvent START_ARRAY = new JsonEvent("startArr",
-				JsonEventType.START_ARRAY);
-		public static final JsonEvent END_OBJECT = new JsonEvent("endObj",
-				JsonEventType.END_OBJECT);
-		public static final JsonEvent END_ARRAY = new JsonEvent("endArr",
-				JsonEventType.END_ARRAY);
-		public static final JsonEvent NULL = new JsonEvent("null",
-				JsonEventType.NULL);
-		public static final JsonEvent TRUE = new JsonEvent("true",
-				JsonEventType.TRUE);
-		public static final JsonEvent FALSE = new JsonEvent("false",
-				JsonEventType.FALSE);
-
-		protected final String value;
-		protected final JsonEventType type;
-
-		private JsonEvent(final String value, final JsonEventType type) {
-			this.value = value;
-			this.type = type;
-		}
-
-		@Override
-		public String toString() {
-			return type.toString().equals(value) ? value : type + ":" + value;
-		}
-
-		protected static JsonEvent string(final String s) {
-			return new JsonEvent(s, JsonEventType.STRING);
-		}
-
-		protected static JsonEvent number(final String n) {
-			return new JsonEvent(n, JsonEventType.NUMBER);
-		}
-
-		protected static JsonEvent key(final String k) {
-			return new JsonEvent(k, JsonEventType.KEY);
-		}
-	}
-
-	public static class JsonEventType {
-		protected static final JsonEventType STRING = new JsonEventType(
-				"string");
-		protected static final JsonEventType NUMBER = new JsonEventType(
-				"number");
-		protected static final JsonEventType KEY = new JsonEventType("key");
-		protected static final JsonEventType START = new JsonEventType("start");
-		protected static final JsonEventType END = new JsonEventType("end");
-		protected static final JsonEventType START_OBJECT = new JsonEventType(
-				"startObj");
-		protected static final JsonEventType START_ARRAY = new JsonEventType(
-				"startArr");
-		protected static final JsonEventType END_OBJECT = new JsonEventType(
-				"endObj");
-		protected static final JsonEventType END_ARRAY = new JsonEventType(
-				"endArr");
-		protected static final JsonEventType NULL = new JsonEventType("null");
-		protected static final JsonEventType TRUE = new JsonEventType("true");
-		protected static final JsonEventType FALSE = new JsonEventType("false");
-
-		protected final String name;
-
-		private JsonEventType(final String name) {
-			this.name = name;
-		}
-
-		@Override
-		public String toString() {
-			return name;
-		}
-	}
-}
+package com.elgoooog.staj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Collection;
+
+public class StreamingJsonReader implements Closeable {
+	private final StreamingJsonReader delegate;
+
+	/**
+	 * Parses on a new thread, as a ThreadedStreamingJsonReader.
+	 */
+	public StreamingJsonReader(final TokenReader reader,
+			final int eventsToBuffer) {
+		delegate = new ThreadedStreamingJsonReader(reader, eventsToBuffer);
+	}
+
+	/**
+	 * For subclasses, which override every method delegated here.
+	 */
+	protected StreamingJsonReader() {
+		delegate = null;
+	}
+
+	public JsonEvent next() {
+		return delegate.next();
+	}
+
+	/**
+	 * Reads up to events.length events into the array, stopping after END,
+	 * and returns how many were read. Only waits for the first one, so a
+	 * reader parsing on another thread may return fewer than would fit.
+	 */
+	public int next(final JsonEvent[] events) {
+		if (delegate != null) {
+			return delegate.next(events);
+		}
+		int count = 0;
+		while (count < events.length) {
+			final JsonEvent event = next();
+			events[count++] = event;
+			if (event == JsonEvent.END) {
+				break;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Like next(JsonEvent[]), but adds up to maxEvents events to the
+	 * collection.
+	 */
+	public int drainTo(final Collection<? super JsonEvent> events,
+			final int maxEvents) {
+		if (delegate != null) {
+			return delegate.drainTo(events, maxEvents);
+		}
+		int count = 0;
+		while (count < maxEvents) {
+			final JsonEvent event = next();
+			events.add(event);
+			++count;
+			if (event == JsonEvent.END) {
+				break;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Skips the value the next call to next() would have started, including
+	 * everything inside it. Returns false when the enclosing array or the
+	 * document has no more values.
+	 */
+	public boolean skipValue() {
+		return delegate.skipValue();
+	}
+
+	/**
+	 * Skips the rest of the innermost open object or array, including its
+	 * END_OBJECT or END_ARRAY event.
+	 */
+	public void skipChildren() {
+		delegate.skipChildren();
+	}
+
+	/**
+	 * Starts over on a new stream, reusing the tokenizer and parser.
+	 */
+	public void reset(final InputStream is) {
+		delegate.reset(is);
+	}
+
+	/**
+	 * Closes the stream being read, which for readers of a Path is the file
+	 * the factory opened.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (delegate != null) {
+			delegate.close();
+		}
+	}
+
+	public static class JsonEvent {
+		public static final JsonEvent START = new JsonEvent("start",
+				JsonEventType.START);
+		public static final JsonEvent END = new JsonEvent("end",
+				JsonEventType.END);
+		public static final JsonEvent START_OBJECT = new JsonEvent("startObj",
+				JsonEventType.START_OBJECT);
+		public static final JsonEvent START_ARRAY = new JsonEvent("startArr",
+				JsonEventType.START_ARRAY);
+		public static final JsonEvent END_OBJECT = new JsonEvent("endObj",
+				JsonEventType.END_OBJECT);
+		public static final JsonEvent END_ARRAY = new JsonEvent("endArr",
+				JsonEventType.END_ARRAY);
+		public static final JsonEvent NULL = new JsonEvent("null",
+				JsonEventType.NULL);
+		public static final JsonEvent TRUE = new JsonEvent("true",
+				JsonEventType.TRUE);
+		public static final JsonEvent FALSE = new JsonEvent("false",
+				JsonEventType.FALSE);
+		public static final JsonEvent END_DOCUMENT = new JsonEvent("endDoc",
+				JsonEventType.END_DOCUMENT);
+
+		// indexed by JsonEventType.code
+		private static final JsonEvent[] SHARED = { START, END, START_OBJECT,
+				END_OBJECT, START_ARRAY, END_ARRAY, null, null, null, TRUE,
+				FALSE, NULL, END_DOCUMENT };
+
+		protected final String value;
+		protected final JsonEventType type;
+
+		private JsonEvent(final String value, final JsonEventType type) {
+			this.value = value;
+			this.type = type;
+		}
+
+		@Override
+		public String toString() {
+			return type.toString().equals(value) ? value : type + ":" + value;
+		}
+
+		/**
+		 * True for NUMBER events holding an integer literal within long range.
+		 */
+		public boolean fitsInLong() {
+			return false;
+		}
+
+		public long getLong() {
+			throw new IllegalStateException("Not a number event: " + this);
+		}
+
+		public double getDouble() {
+			throw new IllegalStateException("Not a number event: " + this);
+		}
+
+		public BigDecimal getBigDecimal() {
+			throw new IllegalStateException("Not a number event: " + this);
+		}
+
+		protected static JsonEvent string(final String s) {
+			return new JsonEvent(s, JsonEventType.STRING);
+		}
+
+		protected static JsonEvent number(final String n, final long l) {
+			return new NumberEvent(n, l, 0, false, true);
+		}
+
+		/**
+		 * A number worth mantissa * 10^exponent, its sign taken from n. The
+		 * double is only worked out when asked for, and parsed from n when
+		 * the mantissa was truncated.
+		 */
+		protected static JsonEvent number(final String n, final long mantissa,
+				final int exponent, final boolean truncated) {
+			return new NumberEvent(n, mantissa, exponent, truncated, false);
+		}
+
+		protected static JsonEvent key(final String k) {
+			return new JsonEvent(k, JsonEventType.KEY);
+		}
+
+		protected static JsonEvent of(final JsonEventType type) {
+			final JsonEvent event = SHARED[type.code];
+			if (event == null) {
+				throw new IllegalArgumentException(
+						"No shared event for type: " + type);
+			}
+			return event;
+		}
+
+		private static class NumberEvent extends JsonEvent {
+			// the long value itself when fitsInLong
+			private final long mantissa;
+			private final int exponent;
+			private final boolean truncated;
+			private final boolean fitsInLong;
+
+			private NumberEvent(final String value, final long mantissa,
+					final int exponent, final boolean truncated,
+					final boolean fitsInLong) {
+				super(value, JsonEventType.NUMBER);
+				this.mantissa = mantissa;
+				this.exponent = exponent;
+				this.truncated = truncated;
+				this.fitsInLong = fitsInLong;
+			}
+
+			@Override
+			public boolean fitsInLong() {
+				return fitsInLong;
+			}
+
+			@Override
+			public long getLong() {
+				if (!fitsInLong) {
+					throw new NumberFormatException("Not a long: " + value);
+				}
+				return mantissa;
+			}
+
+			@Override
+			public double getDouble() {
+				if (fitsInLong) {
+					return mantissa;
+				} else if (!truncated) {
+					final double d = JsonNumbers.toDouble(
+							value.charAt(0) == '-', mantissa, exponent);
+					if (!Double.isNaN(d)) {
+						return d;
+					}
+				}
+				return Double.parseDouble(value);
+			}
+
+			@Override
+			public BigDecimal getBigDecimal() {
+				return fitsInLong ? BigDecimal.valueOf(mantissa)
+						: new BigDecimal(value);
+			}
+		}
+	}
+
+	public static class JsonEventType {
+		protected static final JsonEventType STRING = new JsonEventType(
+				"string", StreamingJsonCursor.STRING);
+		protected static final JsonEventType NUMBER = new JsonEventType(
+				"number", StreamingJsonCursor.NUMBER);
+		protected static final JsonEventType KEY = new JsonEventType("key",
+				StreamingJsonCursor.KEY);
+		protected static final JsonEventType START = new JsonEventType("start",
+				StreamingJsonCursor.START);
+		protected static final JsonEventType END = new JsonEventType("end",
+				StreamingJsonCursor.END);
+		protected static final JsonEventType START_OBJECT = new JsonEventType(
+				"startObj", StreamingJsonCursor.START_OBJECT);
+		protected static final JsonEventType START_ARRAY = new JsonEventType(
+				"startArr", StreamingJsonCursor.START_ARRAY);
+		protected static final JsonEventType END_OBJECT = new JsonEventType(
+				"endObj", StreamingJsonCursor.END_OBJECT);
+		protected static final JsonEventType END_ARRAY = new JsonEventType(
+				"endArr", StreamingJsonCursor.END_ARRAY);
+		protected static final JsonEventType NULL = new JsonEventType("null",
+				StreamingJsonCursor.NULL);
+		protected static final JsonEventType TRUE = new JsonEventType("true",
+				StreamingJsonCursor.TRUE);
+		protected static final JsonEventType FALSE = new JsonEventType(
+				"false", StreamingJsonCursor.FALSE);
+		protected static final JsonEventType END_DOCUMENT = new JsonEventType(
+				"endDoc", StreamingJsonCursor.END_DOCUMENT);
+
+		protected final String name;
+		protected final int code;
+
+		private JsonEventType(final String name, final int code) {
+			this.name = name;
+			this.code = code;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
@@ -1,35 +1,411 @@
-package com.elgoooog.staj;
-
-import java.io.InputStream;
-import java.io.Reader;
-
-public class StreamingJsonReaderFactory {
-	public StreamingJsonReader createStreamingJsonReader(final InputStream is) {
-		return createStreamingJsonReader(new TokenReader(is), 1);
-	}
-
-	public StreamingJsonReader createStreamingJsonReader(final Reader reader) {
-		return createStreamingJsonReader(new TokenReader(reader), 1);
-	}
-
-	public StreamingJsonReader createStreamingJsonReader(
-			final TokenReader tokenReader) {
-		return createStreamingJsonReader(tokenReader, 1);
-	}
-
-	public StreamingJsonReader createStreamingJsonReader(final InputStream is,
-			final int eventsToBuffer) {
-		return createStreamingJsonReader(new TokenReader(is), eventsToBuffer);
-	}
-
-	public StreamingJsonReader createStreamingJsonReader(final Reader reader,
-			final int eventsToBuffer) {
-		return createStreamingJsonReader(new TokenReader(reader),
-				eventsToBuffer);
-	}
-
-	public StreamingJsonReader createStreamingJsonReader(
-			final TokenReader tokenReader, final int eventsToBuffer) {
-		return new StreamingJsonReader(tokenReader, eventsToBuffer);
-	}
-}
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class StreamingJsonReaderFactory {
+	private static final byte[] NO_BYTES = new byte[0];
+
+	private KeySymbolTable keySymbolTable;
+	private JsonPathProjection projection;
+	private int maxDepth = StreamingJsonParser.DEFAULT_MAX_DEPTH;
+	private boolean multipleDocuments;
+	private boolean strictEnd;
+	private boolean lazyStrings;
+	private boolean streamedStrings;
+	private ReaderPool pool;
+	private Executor executor;
+
+	public KeySymbolTable getKeySymbolTable() {
+		return keySymbolTable;
+	}
+
+	/**
+	 * Shares the given table between every parser this factory creates from
+	 * now on, or turns key interning off when null.
+	 */
+	public void setKeySymbolTable(final KeySymbolTable keySymbolTable) {
+		this.keySymbolTable = keySymbolTable;
+	}
+
+	public JsonPathProjection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Readers and cursors created from now on only emit the values matching
+	 * the projection plus the structure around them, or everything when null.
+	 */
+	public void setProjection(final JsonPathProjection projection) {
+		this.projection = projection;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Documents nested deeper than this fail with a JsonParseException.
+	 */
+	public void setMaxDepth(final int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Invalid max depth: " + maxDepth);
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	public boolean isMultipleDocuments() {
+		return multipleDocuments;
+	}
+
+	/**
+	 * Readers and cursors created from now on parse any number of root values
+	 * in a row, with an END_DOCUMENT event after each one.
+	 */
+	public void setMultipleDocuments(final boolean multipleDocuments) {
+		this.multipleDocuments = multipleDocuments;
+	}
+
+	public boolean isStrictEnd() {
+		return strictEnd;
+	}
+
+	/**
+	 * Readers and cursors created from now on fail on anything but whitespace
+	 * after a single root value, instead of leaving it unread.
+	 */
+	public void setStrictEnd(final boolean strictEnd) {
+		this.strictEnd = strictEnd;
+	}
+
+	public boolean isLazyStrings() {
+		return lazyStrings;
+	}
+
+	/**
+	 * Parsers created from now on leave STRING values undecoded until their
+	 * text is read. Only cursors gain from it, when most values are skipped
+	 * or only compared with contentEquals() and startsWith().
+	 */
+	public void setLazyStrings(final boolean lazyStrings) {
+		this.lazyStrings = lazyStrings;
+	}
+
+	public boolean isStreamedStrings() {
+		return streamedStrings;
+	}
+
+	/**
+	 * Parsers created from now on leave STRING values in the stream until
+	 * read, so that cursors can read huge ones with bounded memory through
+	 * readTextChunk(), getValueAsReader() or readBase64().
+	 */
+	public void setStreamedStrings(final boolean streamedStrings) {
+		this.streamedStrings = streamedStrings;
+	}
+
+	public ReaderPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Synchronous readers and cursors for InputStreams are taken from the pool
+	 * when it has one with the current settings, and given back to it by
+	 * release(). No pooling when null.
+	 */
+	public void setPool(final ReaderPool pool) {
+		this.pool = pool;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Threaded readers created from now on parse on the executor, or on a new
+	 * platform thread each when null. Every open reader holds on to one task
+	 * until its END is read, so a bounded pool must be at least as large as
+	 * the number of readers open at once. See newVirtualThreadExecutor().
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(final InputStream is) {
+		return createStreamingJsonReader(new TokenReader(is), 1);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(final Reader reader) {
+		return createStreamingJsonReader(new TokenReader(reader), 1);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(
+			final TokenReader tokenReader) {
+		return createStreamingJsonReader(tokenReader, 1);
+	}
+
+	/**
+	 * Reads the file through a memory mapping. Closing the reader closes the
+	 * file, as it does for every Path overload.
+	 */
+	public StreamingJsonReader createStreamingJsonReader(final Path path)
+			throws IOException {
+		return createStreamingJsonReader(path, 1);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(
+			final FileChannel channel) throws IOException {
+		return createStreamingJsonReader(channel, 1);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(final byte[] json) {
+		return createStreamingJsonReader(newTokenReader(json), 1);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(final InputStream is,
+			final int eventsToBuffer) {
+		return createStreamingJsonReader(new TokenReader(is), eventsToBuffer);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(final Reader reader,
+			final int eventsToBuffer) {
+		return createStreamingJsonReader(new TokenReader(reader),
+				eventsToBuffer);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(final Path path,
+			final int eventsToBuffer) throws IOException {
+		return createStreamingJsonReader(openChannel(path), eventsToBuffer);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(
+			final FileChannel channel, final int eventsToBuffer)
+			throws IOException {
+		return createStreamingJsonReader(new TokenReader(channel),
+				eventsToBuffer);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(final byte[] json,
+			final int eventsToBuffer) {
+		return createStreamingJsonReader(newTokenReader(json), eventsToBuffer);
+	}
+
+	public StreamingJsonReader createStreamingJsonReader(
+			final TokenReader tokenReader, final int eventsToBuffer) {
+		return new ThreadedStreamingJsonReader(createParser(tokenReader),
+				eventsToBuffer, executor);
+	}
+
+	public StreamingJsonReader createSynchronousStreamingJsonReader(
+			final InputStream is) {
+		if (pool != null) {
+			final SynchronousStreamingJsonReader reader = pool.pollReader();
+			if (reader != null && configure(reader.getParser())) {
+				reader.reset(is);
+				return reader;
+			}
+		}
+		return createSynchronousStreamingJsonReader(new TokenReader(is));
+	}
+
+	public StreamingJsonReader createSynchronousStreamingJsonReader(
+			final Reader reader) {
+		return createSynchronousStreamingJsonReader(new TokenReader(reader));
+	}
+
+	public StreamingJsonReader createSynchronousStreamingJsonReader(
+			final Path path) throws IOException {
+		return createSynchronousStreamingJsonReader(openChannel(path));
+	}
+
+	public StreamingJsonReader createSynchronousStreamingJsonReader(
+			final FileChannel channel) throws IOException {
+		return createSynchronousStreamingJsonReader(new TokenReader(channel));
+	}
+
+	public StreamingJsonReader createSynchronousStreamingJsonReader(
+			final byte[] json) {
+		return createSynchronousStreamingJsonReader(newTokenReader(json));
+	}
+
+	public StreamingJsonReader createSynchronousStreamingJsonReader(
+			final TokenReader tokenReader) {
+		return new SynchronousStreamingJsonReader(createParser(tokenReader));
+	}
+
+	public StreamingJsonCursor createStreamingJsonCursor(final InputStream is) {
+		if (pool != null) {
+			final StreamingJsonCursor cursor = pool.pollCursor();
+			if (cursor != null && configure(cursor.getParser())) {
+				cursor.reset(is);
+				return cursor;
+			}
+		}
+		return createStreamingJsonCursor(new TokenReader(is));
+	}
+
+	public StreamingJsonCursor createStreamingJsonCursor(final Reader reader) {
+		return createStreamingJsonCursor(new TokenReader(reader));
+	}
+
+	public StreamingJsonCursor createStreamingJsonCursor(final Path path)
+			throws IOException {
+		return createStreamingJsonCursor(new TokenReader(openChannel(path)));
+	}
+
+	public StreamingJsonCursor createStreamingJsonCursor(final byte[] json) {
+		return createStreamingJsonCursor(newTokenReader(json));
+	}
+
+	public StreamingJsonCursor createStreamingJsonCursor(
+			final TokenReader tokenReader) {
+		return new StreamingJsonCursor(createParser(tokenReader));
+	}
+
+	/**
+	 * Publishes the stream's events to one Flow.Subscriber, parsing on the
+	 * executor only as batches are requested.
+	 */
+	public JsonEventPublisher createJsonEventPublisher(final InputStream is,
+			final Executor executor) {
+		return new JsonEventPublisher(createParser(new TokenReader(is)),
+				executor);
+	}
+
+	public JsonEventPublisher createJsonEventPublisher(final InputStream is,
+			final Executor executor, final int batchSize) {
+		return new JsonEventPublisher(createParser(new TokenReader(is)),
+				executor, batchSize);
+	}
+
+	/**
+	 * A cursor that is fed bytes as they arrive, configured like the others.
+	 * Projections and streamed strings are not supported.
+	 */
+	public NonBlockingJsonCursor createNonBlockingJsonCursor() {
+		if (projection != null) {
+			throw new UnsupportedOperationException(
+					"Projections are not supported without blocking");
+		} else if (streamedStrings) {
+			throw new UnsupportedOperationException(
+					"Streamed strings are not supported without blocking");
+		}
+		return new NonBlockingJsonCursor(
+				createParser(new NonBlockingJsonCursor.FeedTokenReader()));
+	}
+
+	/**
+	 * Parses newline-delimited JSON on the executor, with readers configured
+	 * like the ones this factory creates.
+	 */
+	public ParallelNdjsonParser createParallelNdjsonParser(
+			final ExecutorService executor) {
+		return new ParallelNdjsonParser(this, executor);
+	}
+
+	/**
+	 * Binds JSON to objects, reading it with cursors from this factory.
+	 */
+	public JsonBinder createJsonBinder() {
+		return new JsonBinder(this);
+	}
+
+	/**
+	 * Gives a synchronous reader back to the pool, if there is one. The reader
+	 * must not be used afterwards. The stream it was reading is not closed.
+	 */
+	public void release(final StreamingJsonReader reader) {
+		if (pool != null && reader instanceof SynchronousStreamingJsonReader
+				&& isPoolable(((SynchronousStreamingJsonReader) reader)
+						.getParser())) {
+			final SynchronousStreamingJsonReader synchronous = (SynchronousStreamingJsonReader) reader;
+			// let go of the stream while pooled
+			synchronous.reset(NO_BYTES, 0, 0);
+			pool.offerReader(synchronous);
+		}
+	}
+
+	/**
+	 * Gives a cursor back to the pool, if there is one. The cursor must not be
+	 * used afterwards. The stream it was reading is not closed.
+	 */
+	public void release(final StreamingJsonCursor cursor) {
+		if (pool != null && isPoolable(cursor.getParser())) {
+			cursor.reset(NO_BYTES, 0, 0);
+			pool.offerCursor(cursor);
+		}
+	}
+
+	protected StreamingJsonParser createParser(final TokenReader tokenReader) {
+		final StreamingJsonParser parser = projection == null ? new StreamingJsonParser(
+				tokenReader) : new ProjectingStreamingJsonParser(tokenReader,
+				projection);
+		configure(parser);
+		return parser;
+	}
+
+	/**
+	 * Pooled instances are reset onto streams, which non-blocking ones cannot
+	 * read.
+	 */
+	private static boolean isPoolable(final StreamingJsonParser parser) {
+		return !(parser.getTokenReader() instanceof NonBlockingJsonCursor.FeedTokenReader);
+	}
+
+	/**
+	 * Applies the current settings to the parser, or returns false if it was
+	 * built for a different projection.
+	 */
+	private boolean configure(final StreamingJsonParser parser) {
+		final JsonPathProjection parserProjection = parser instanceof ProjectingStreamingJsonParser ? ((ProjectingStreamingJsonParser) parser)
+				.getProjection() : null;
+		if (parserProjection != projection) {
+			return false;
+		}
+
+		parser.setKeySymbolTable(keySymbolTable);
+		parser.setMaxDepth(maxDepth);
+		parser.setMultipleDocuments(multipleDocuments);
+		parser.setStrictEnd(strictEnd);
+		parser.setLazyStrings(lazyStrings);
+		parser.setStreamedStrings(streamedStrings);
+		return true;
+	}
+
+	private TokenReader newTokenReader(final byte[] json) {
+		return newTokenReader(json, 0, json.length);
+	}
+
+	protected TokenReader newTokenReader(final byte[] json, final int offset,
+			final int length) {
+		return new TokenReader(json, offset, length);
+	}
+
+	/**
+	 * An executor starting a virtual thread per task, for holding many
+	 * threaded readers open on slow streams. Looked up reflectively so this
+	 * library still runs on Java versions without virtual threads, where it
+	 * throws UnsupportedOperationException.
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (final ReflectiveOperationException e) {
+			throw new UnsupportedOperationException(
+					"Virtual threads need Java 21 or later", e);
+		}
+	}
+
+	private static FileChannel openChannel(final Path path)
+			throws IOException {
+		return FileChannel.open(path, StandardOpenOption.READ);
+	}
+}
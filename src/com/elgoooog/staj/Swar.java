@@ -0,0 +1,41 @@
+package com.elgoooog.staj;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Byte-parallel tests on eight bytes of input packed into a long. Each test
+ * sets the high bit of every matching byte and clears every other bit, so
+ * the first match is at {@code Long.numberOfTrailingZeros(result) >>> 3}.
+ */
+final class Swar {
+	private static final VarHandle LONGS = MethodHandles
+			.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+	private Swar() {
+	}
+
+	/**
+	 * The eight bytes starting at the offset, the first in the low byte.
+	 */
+	static long get(final byte[] bytes, final int offset) {
+		return (long) LONGS.get(bytes, offset);
+	}
+
+	static long equal(final long word, final int c) {
+		final long x = word ^ c * ONES;
+		return ~((x & LOW_BITS) + LOW_BITS | x | LOW_BITS);
+	}
+
+	/**
+	 * Matches the bytes that end a plain run in a string: quote, backslash
+	 * and the start or middle of a multi-byte character.
+	 */
+	static long stringSpecials(final long word) {
+		return equal(word, '"') | equal(word, '\\') | word & HIGH_BITS;
+	}
+}
@@ -0,0 +1,80 @@
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class SynchronousStreamingJsonReader extends StreamingJsonReader {
+	private final StreamingJsonParser parser;
+	private boolean started;
+	private boolean done;
+
+	public SynchronousStreamingJsonReader(final TokenReader reader) {
+		this(new StreamingJsonParser(reader));
+	}
+
+	public SynchronousStreamingJsonReader(final StreamingJsonParser parser) {
+		this.parser = parser;
+		started = false;
+		done = false;
+	}
+
+	@Override
+	public JsonEvent next() {
+		if (!started) {
+			started = true;
+			return JsonEvent.START;
+		} else if (done) {
+			throw new IllegalStateException(
+					"JsonEvent END has already been sent.  There is nothing left.");
+		}
+
+		final JsonEvent event = parser.readNext();
+		if (event == JsonEvent.END) {
+			done = true;
+		}
+
+		return event;
+	}
+
+	@Override
+	public boolean skipValue() {
+		requireNotDone();
+		started = true;
+		return parser.skipValue();
+	}
+
+	@Override
+	public void skipChildren() {
+		requireNotDone();
+		parser.skipChildren();
+	}
+
+	protected StreamingJsonParser getParser() {
+		return parser;
+	}
+
+	@Override
+	public void reset(final InputStream is) {
+		parser.reset(is);
+		started = false;
+		done = false;
+	}
+
+	public void reset(final byte[] json, final int offset, final int length) {
+		parser.reset(json, offset, length);
+		started = false;
+		done = false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		parser.getTokenReader().close();
+	}
+
+	private void requireNotDone() {
+		if (done) {
+			throw new IllegalStateException(
+					"JsonEvent END has already been sent.  There is nothing left.");
+		}
+	}
+}
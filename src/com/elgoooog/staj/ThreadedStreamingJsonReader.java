@@ -0,0 +1,374 @@
+package com.elgoooog.staj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parses ahead on another thread into a lock-free ring buffer. Both sides
+ * wait with LockSupport.park rather than monitors, so the reader thread can
+ * be a virtual thread without pinning its carrier.
+ */
+public class ThreadedStreamingJsonReader extends StreamingJsonReader {
+	// spinning only helps when the other side can run at the same time
+	private static final int SPIN_TRIES = Runtime.getRuntime()
+			.availableProcessors() > 1 ? 128 : 0;
+	private static final int MAX_CAPACITY = 1 << 30;
+	private static final int MAX_PUBLISH_BATCH = 256;
+
+	private final JsonEvent[] jsonEvents;
+	private final int mask;
+	private final StreamingJsonParser parser;
+	private final int bufferSize;
+	private final int publishBatch;
+	private final Executor executor;
+
+	// head is only written by the consumer, tail only by the ReaderTask
+	private volatile long head;
+	private volatile long tail;
+	private volatile Thread parkedConsumer;
+	private volatile Thread parkedProducer;
+	private volatile long producerWakeHead;
+	private volatile Throwable failure;
+	private boolean done;
+	private int depth;
+
+	public ThreadedStreamingJsonReader(final TokenReader reader,
+			final int eventsToBuffer) {
+		this(new StreamingJsonParser(reader), eventsToBuffer);
+	}
+
+	public ThreadedStreamingJsonReader(final StreamingJsonParser parser,
+			final int eventsToBuffer) {
+		this(parser, eventsToBuffer, null);
+	}
+
+	/**
+	 * Parses on the executor instead of a new platform thread. Each open
+	 * reader keeps one task running until END is read, so the executor must
+	 * not run fewer tasks at once than there are open readers.
+	 */
+	public ThreadedStreamingJsonReader(final StreamingJsonParser parser,
+			final int eventsToBuffer, final Executor executor) {
+		this.parser = parser;
+		this.executor = executor;
+		bufferSize = eventsToBuffer > 1 ? Math.min(eventsToBuffer,
+				MAX_CAPACITY) : 1;
+		publishBatch = Math.max(1, Math.min(bufferSize / 4, MAX_PUBLISH_BATCH));
+		jsonEvents = new JsonEvent[capacityFor(bufferSize)];
+		mask = jsonEvents.length - 1;
+		done = false;
+		jsonEvents[0] = JsonEvent.START;
+		head = 0;
+		tail = 1;
+		startReading();
+	}
+
+	@Override
+	public JsonEvent next() {
+		final long position = head;
+		awaitEvents(position);
+		final JsonEvent event = take(position);
+		advanceHead(position + 1);
+		return event;
+	}
+
+	/**
+	 * Takes every event already parsed, up to the array's length, with one
+	 * update of the shared head.
+	 */
+	@Override
+	public int next(final JsonEvent[] events) {
+		if (events.length == 0) {
+			return 0;
+		}
+
+		final long position = head;
+		final int count = (int) Math.min(awaitEvents(position), events.length);
+		for (int i = 0; i < count; ++i) {
+			events[i] = take(position + i);
+		}
+		advanceHead(position + count);
+		return count;
+	}
+
+	@Override
+	public int drainTo(final Collection<? super JsonEvent> events,
+			final int maxEvents) {
+		if (maxEvents <= 0) {
+			return 0;
+		}
+
+		final long position = head;
+		final int count = (int) Math.min(awaitEvents(position), maxEvents);
+		for (int i = 0; i < count; ++i) {
+			events.add(take(position + i));
+		}
+		advanceHead(position + count);
+		return count;
+	}
+
+	/**
+	 * Waits for the event at the given position and returns how many are
+	 * ready from there on.
+	 */
+	private long awaitEvents(final long position) {
+		if (done) {
+			throw new IllegalStateException(
+					"JsonEvent END has already been sent.  There is nothing left.");
+		}
+		awaitTail(position);
+		return tail - position;
+	}
+
+	private JsonEvent take(final long position) {
+		final int index = (int) position & mask;
+		final JsonEvent event = jsonEvents[index];
+		jsonEvents[index] = null;
+
+		if (event == JsonEvent.START_OBJECT || event == JsonEvent.START_ARRAY) {
+			++depth;
+		} else if (event == JsonEvent.END_OBJECT
+				|| event == JsonEvent.END_ARRAY) {
+			--depth;
+		} else if (event == JsonEvent.END) {
+			done = true;
+		}
+		return event;
+	}
+
+	private void advanceHead(final long position) {
+		head = position;
+
+		final Thread producer = parkedProducer;
+		if (producer != null && position > producerWakeHead) {
+			LockSupport.unpark(producer);
+		}
+	}
+
+	/**
+	 * The ReaderTask has usually parsed ahead already, so skipped events are
+	 * drained from the buffer rather than scanned over.
+	 */
+	@Override
+	public boolean skipValue() {
+		JsonEvent event = peek();
+		if (event == JsonEvent.START) {
+			next();
+			event = peek();
+		}
+
+		if (event == JsonEvent.END || event == JsonEvent.END_OBJECT
+				|| event == JsonEvent.END_ARRAY
+				|| event == JsonEvent.END_DOCUMENT) {
+			return false;
+		} else if (event.type == JsonEventType.KEY) {
+			throw new IllegalStateException(
+					"Expected a value, but the next event is a key");
+		}
+
+		next();
+		if (event == JsonEvent.START_OBJECT || event == JsonEvent.START_ARRAY) {
+			skipChildren();
+		}
+		return true;
+	}
+
+	@Override
+	public void skipChildren() {
+		if (done) {
+			throw new IllegalStateException(
+					"JsonEvent END has already been sent.  There is nothing left.");
+		} else if (depth == 0) {
+			throw new IllegalStateException("Not inside an object or array");
+		}
+
+		final int target = depth - 1;
+		while (depth > target) {
+			next();
+		}
+	}
+
+	/**
+	 * Starts over on a new stream with a new ReaderTask. Only allowed once
+	 * END has been read or the ReaderTask has failed, when the previous
+	 * ReaderTask is finished.
+	 */
+	@Override
+	public void reset(final InputStream is) {
+		if (!done && failure == null) {
+			throw new IllegalStateException(
+					"Cannot reset before JsonEvent END has been read");
+		}
+
+		parser.reset(is);
+		failure = null;
+		done = false;
+		depth = 0;
+		final long position = head;
+		jsonEvents[(int) position & mask] = JsonEvent.START;
+		tail = position + 1;
+		startReading();
+	}
+
+	/**
+	 * Closes the stream, which a ReaderTask still reading it fails on.
+	 */
+	@Override
+	public void close() throws IOException {
+		parser.getTokenReader().close();
+	}
+
+	private JsonEvent peek() {
+		if (done) {
+			throw new IllegalStateException(
+					"JsonEvent END has already been sent.  There is nothing left.");
+		}
+
+		final long position = head;
+		awaitTail(position);
+		return jsonEvents[(int) position & mask];
+	}
+
+	private void startReading() {
+		if (executor == null) {
+			new Thread(new ReaderTask()).start();
+		} else {
+			executor.execute(new ReaderTask());
+		}
+	}
+
+	/**
+	 * Parses into the ring and publishes the new tail in batches: when a
+	 * batch is full, at END, before waiting for room and before the
+	 * TokenReader reads its stream, which may block.
+	 */
+	protected class ReaderTask implements Runnable {
+		private long parsed;
+
+		@Override
+		public void run() {
+			final TokenReader tokenReader = parser.getTokenReader();
+			tokenReader.setFillListener(this::publish);
+			parsed = tail;
+			try {
+				long wrapHead = head;
+				JsonEvent event;
+				do {
+					if (wrapHead <= parsed - bufferSize) {
+						wrapHead = head;
+						if (wrapHead <= parsed - bufferSize) {
+							// once full, let the consumer drain half the
+							// buffer before waking
+							publish();
+							awaitHead(parsed - bufferSize + bufferSize / 2);
+							wrapHead = head;
+						}
+					}
+
+					event = parser.readNext();
+					jsonEvents[(int) parsed & mask] = event;
+					++parsed;
+					if (event == JsonEvent.END) {
+						// once END is out the consumer can reset() and start
+						// the next ReaderTask, which sets its own listener
+						tokenReader.setFillListener(null);
+						publish();
+					} else if (parsed - tail >= publishBatch) {
+						publish();
+					}
+				} while (event != JsonEvent.END);
+			} catch (final Throwable t) {
+				// handed to the consumer, which would otherwise wait forever
+				tokenReader.setFillListener(null);
+				publish();
+				failure = t;
+				final Thread consumer = parkedConsumer;
+				if (consumer != null) {
+					LockSupport.unpark(consumer);
+				}
+			}
+		}
+
+		private void publish() {
+			if (tail == parsed) {
+				return;
+			}
+			tail = parsed;
+
+			final Thread consumer = parkedConsumer;
+			if (consumer != null) {
+				LockSupport.unpark(consumer);
+			}
+		}
+	}
+
+	private void awaitTail(final long position) {
+		for (int i = 0; i < SPIN_TRIES; ++i) {
+			if (tail > position) {
+				return;
+			}
+			Thread.onSpinWait();
+		}
+
+		boolean interrupted = false;
+		parkedConsumer = Thread.currentThread();
+		try {
+			while (tail <= position && failure == null) {
+				LockSupport.park(this);
+				interrupted |= Thread.interrupted();
+			}
+		} finally {
+			parkedConsumer = null;
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (tail <= position) {
+			final Throwable t = failure;
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			} else if (t instanceof Error) {
+				throw (Error) t;
+			}
+			throw new RuntimeException(t);
+		}
+	}
+
+	private void awaitHead(final long position) {
+		for (int i = 0; i < SPIN_TRIES; ++i) {
+			if (head > position) {
+				return;
+			}
+			Thread.onSpinWait();
+		}
+
+		boolean interrupted = false;
+		producerWakeHead = position;
+		parkedProducer = Thread.currentThread();
+		try {
+			while (head <= position) {
+				LockSupport.park(this);
+				interrupted |= Thread.interrupted();
+			}
+		} finally {
+			parkedProducer = null;
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static int capacityFor(final int size) {
+		int capacity = 1;
+		while (capacity < size) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+}
@@ -1,266 +1,1139 @@
-package com.elgoooog.staj;
-
-import java.io.Closeable;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.PushbackReader;
-import java.io.Reader;
-
-public class TokenReader implements Closeable {
-	private final PushbackReader reader;
-
-	public TokenReader(final Reader reader) {
-		this.reader = new PushbackReader(reader);
-	}
-
-	public TokenReader(final InputStream is) {
-		this(new InputStreamReader(is));
-	}
-
-	public Token readNext() throws IOException {
-		char c;
-
-		do {
-			c = (char) reader.read();
-		} while (c != -1 && Character.isWhitespace(c));
-
-		switch (c) {
-		case (char) -1:
-			return Token.END;
-		case '{':
-			return Token.OPEN_BRACE;
-		case '}':
-			return Token.CLOSE_BRACE;
-		case '[':
-			return Token.OPEN_BRACKET;
-		case ']':
-			return Token.CLOSE_BRACKET;
-		case ':':
-			return Token.COLON;
-		case ',':
-			return Token.COMMA;
-		case '"':
-			return parseString();
-		case '1':
-		case '2':
-		case '3':
-		case '4':
-		case '5':
-		case '6':
-		case '7':
-		case '8':
-		case '9':
-		case '0':
-		case '-':
-			reader.unread(c);
-			return parseNumber();
-		case 'n':
-			reader.unread(c);
-			return parseNull();
-		case 't':
-			reader.unread(c);
-			return parseTrue();
-		case 'f':
-			reader.unread(c);
-			return parseFalse();
-		default:
-			throw new JsonParseException("not legal");
-		}
-	}
-
-	protected Token parseString() throws IOException {
-		final StringBuilder builder = new StringBuilder();
-
-		char c = (char) reader.read();
-
-		while ('"' != c) {
-			if (c == '\\') {
-				c = parseEscapedCharacter();
-			}
-			builder.append(c);
-			c = (char) reader.read();
-		}
-
-		return Token.s(builder.toString());
-	}
-
-	protected char parseEscapedCharacter() throws IOException {
-		final char c = (char) reader.read();
-
-		switch (c) {
-		case '"':
-		case '\\':
-		case '/':
-			return c;
-		case 'b':
-			return '\b';
-		case 'f':
-			return '\f';
-		case 'r':
-			return '\r';
-		case 't':
-			return '\t';
-		case 'n':
-			return '\n';
-		case 'u':
-			return parseUnicodeCharacter();
-		default:
-			throw new JsonParseException(
-					"Improperly escaped character sequence: \\" + c);
-		}
-	}
-
-	protected char parseUnicodeCharacter() throws IOException {
-		final char[] chars = new char[4];
-		reader.read(chars);
-
-		try {
-			return Character
-					.toChars(Integer.parseInt(String.valueOf(chars), 16))[0];
-		} catch (final Exception e) {
-			throw new JsonParseException(
-					"Non valid unicode value for character: " + chars[0]
-							+ chars[1] + chars[2] + chars[3]);
-		}
-	}
-
-	protected Token parseNumber() throws IOException {
-		final StringBuilder builder = new StringBuilder();
-
-		char c = (char) reader.read();
-
-		if (c == '-') {
-			builder.append(c);
-			c = (char) reader.read();
-		}
-
-		if (c == '0') {
-			builder.append(c);
-			c = (char) reader.read();
-		} else if (Character.isDigit(c)) {
-			do {
-				builder.append(c);
-				c = (char) reader.read();
-			} while (Character.isDigit(c));
-		} else {
-			throw new JsonParseException("Not a valid number");
-		}
-
-		if (c == '.') {
-			builder.append(c);
-			c = (char) reader.read();
-			if (Character.isDigit(c)) {
-				do {
-					builder.append(c);
-					c = (char) reader.read();
-				} while (Character.isDigit(c));
-			} else {
-				throw new JsonParseException("Not a valid number");
-			}
-		}
-
-		if (c == 'e' || c == 'E') {
-			builder.append(c);
-			c = (char) reader.read();
-			if (c == '+' || c == '-') {
-				builder.append(c);
-				c = (char) reader.read();
-			}
-			if (Character.isDigit(c)) {
-				do {
-					builder.append(c);
-					c = (char) reader.read();
-				} while (Character.isDigit(c));
-			} else {
-				throw new JsonParseException("Not a valid number");
-			}
-		}
-
-		if (c != -1) {
-			reader.unread(c);
-		}
-
-		return Token.n(builder.toString());
-	}
-
-	protected Token parseNull() throws IOException {
-		parseExactWord("null");
-
-		return Token.NULL;
-	}
-
-	protected Token parseFalse() throws IOException {
-		parseExactWord("false");
-
-		return Token.FALSE;
-	}
-
-	protected Token parseTrue() throws IOException {
-		parseExactWord("true");
-
-		return Token.TRUE;
-	}
-
-	protected void parseExactWord(final CharSequence word) throws IOException {
-		for (int i = 0; i < word.length(); ++i) {
-			if (word.charAt(i) != reader.read()) {
-				throw new JsonParseException("expected word: " + word
-						+ " not found");
-			}
-		}
-	}
-
-	@Override
-	public void close() throws IOException {
-		reader.close();
-	}
-
-	protected static class Token {
-		protected static final Token END = new Token("", TokenType.END);
-		protected static final Token OPEN_BRACE = new Token("{",
-				TokenType.OPEN_BRACE);
-		protected static final Token CLOSE_BRACE = new Token("}",
-				TokenType.CLOSE_BRACE);
-		protected static final Token OPEN_BRACKET = new Token("[",
-				TokenType.OPEN_BRACKET);
-		protected static final Token CLOSE_BRACKET = new Token("]",
-				TokenType.CLOSE_BRACKET);
-		protected static final Token NULL = new Token("null", TokenType.NULL);
-		protected static final Token FALSE = new Token("false", TokenType.FALSE);
-		protected static final Token TRUE = new Token("true", TokenType.TRUE);
-		protected static final Token COLON = new Token(":", TokenType.COLON);
-		protected static final Token COMMA = new Token(",", TokenType.COMMA);
-
-		protected final String value;
-		protected final TokenType type;
-
-		private Token(final String value, final TokenType type) {
-			this.value = value;
-			this.type = type;
-		}
-
-		private static Token s(final String s) {
-			return new Token(s, TokenType.STRING);
-		}
-
-		private static Token n(final String n) {
-			return new Token(n, TokenType.NUMBER);
-		}
-	}
-
-	protected static class TokenType {
-		protected static final TokenType STRING = new TokenType();
-		protected static final TokenType NUMBER = new TokenType();
-		protected static final TokenType END = new TokenType();
-		protected static final TokenType OPEN_BRACE = new TokenType();
-		protected static final TokenType CLOSE_BRACE = new TokenType();
-		protected static final TokenType OPEN_BRACKET = new TokenType();
-		protected static final TokenType CLOSE_BRACKET = new TokenType();
-		protected static final TokenType NULL = new TokenType();
-		protected static final TokenType FALSE = new TokenType();
-		protected static final TokenType TRUE = new TokenType();
-		protected static final TokenType COLON = new TokenType();
-		protected static final TokenType COMMA = new TokenType();
-	}
-}
+package com.elgoooog.staj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TokenReader implements Closeable {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_MANTISSA_DIGITS = 19;
+	private static final int MAX_EXPONENT = 100000;
+	private static final int TEXT_CHUNK = 8192;
+
+	private InputStream input;
+	private byte[] buffer;
+	// the buffer for stream input, kept while reading a byte array in place
+	private byte[] streamBuffer;
+	private int position;
+	private int limit;
+	private char[] text;
+	private int textLength;
+	private long numberMantissa;
+	private int numberExponent;
+	private boolean numberNegative;
+	private boolean numberTruncated;
+	private boolean numberIntegral;
+	// a string left undecoded in the buffer by scanStringLazily()
+	private boolean textPending;
+	private int rawStart;
+	// the end of the leading plain ASCII run, rawEnd when that is all of it
+	private int rawPlainEnd;
+	private int rawEnd;
+	// a string left in the stream by openString(), and how much of its text
+	// readText() has handed out
+	private boolean stringOpen;
+	private boolean textStreamed;
+	private int textRead;
+	private Runnable fillListener;
+
+	public TokenReader(final Reader reader) {
+		this(new Utf8ReaderInputStream(reader));
+	}
+
+	public TokenReader(final InputStream is) {
+		text = new char[64];
+		start(is);
+	}
+
+	/**
+	 * Tokenizes the given bytes in place. The array is used as the buffer, so
+	 * it must not change while it is being read.
+	 */
+	public TokenReader(final byte[] bytes, final int offset, final int length) {
+		text = new char[64];
+		start(bytes, offset, length);
+	}
+
+	public TokenReader(final FileChannel channel) throws IOException {
+		this(new MappedFileInputStream(channel));
+	}
+
+	public TokenReader(final InputStream is, final Charset charset) {
+		this(StandardCharsets.UTF_8.equals(charset) ? is
+				: new Utf8ReaderInputStream(new InputStreamReader(is, charset)));
+	}
+
+	/**
+	 * Starts over on a new stream, keeping the buffers grown so far. The old
+	 * stream is not closed.
+	 */
+	public void reset(final InputStream is) {
+		start(is);
+	}
+
+	public void reset(final Reader reader) {
+		start(new Utf8ReaderInputStream(reader));
+	}
+
+	/**
+	 * Starts over on the given bytes, read in place.
+	 */
+	public void reset(final byte[] bytes, final int offset, final int length) {
+		start(bytes, offset, length);
+	}
+
+	private void start(final InputStream is) {
+		if (streamBuffer == null) {
+			streamBuffer = new byte[BUFFER_SIZE];
+		}
+		input = is;
+		buffer = streamBuffer;
+		position = 0;
+		limit = 0;
+		clearText();
+	}
+
+	private void start(final byte[] bytes, final int offset, final int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException("offset " + offset
+					+ ", length " + length + ", array length " + bytes.length);
+		}
+
+		input = null;
+		buffer = bytes;
+		position = offset;
+		limit = offset + length;
+		clearText();
+	}
+
+	public Token readNext() throws IOException {
+		final TokenType type = nextToken();
+
+		if (type == TokenType.STRING) {
+			return Token.s(getText());
+		} else if (type == TokenType.NUMBER) {
+			return Token.n(getText());
+		} else {
+			return Token.of(type);
+		}
+	}
+
+	/**
+	 * Scans the next token without allocating. The content of STRING and
+	 * NUMBER tokens is left in the text buffer until the next call.
+	 */
+	protected TokenType nextToken() throws IOException {
+		final int c = nextNonWhitespace();
+
+		switch (c) {
+		case -1:
+			return TokenType.END;
+		case '{':
+			return TokenType.OPEN_BRACE;
+		case '}':
+			return TokenType.CLOSE_BRACE;
+		case '[':
+			return TokenType.OPEN_BRACKET;
+		case ']':
+			return TokenType.CLOSE_BRACKET;
+		case ':':
+			return TokenType.COLON;
+		case ',':
+			return TokenType.COMMA;
+		case '"':
+			scanString();
+			return TokenType.STRING;
+		case '1':
+		case '2':
+		case '3':
+		case '4':
+		case '5':
+		case '6':
+		case '7':
+		case '8':
+		case '9':
+		case '0':
+		case '-':
+			unread();
+			scanNumber();
+			return TokenType.NUMBER;
+		case 'n':
+			unread();
+			parseExactWord("null");
+			return TokenType.NULL;
+		case 't':
+			unread();
+			parseExactWord("true");
+			return TokenType.TRUE;
+		case 'f':
+			unread();
+			parseExactWord("false");
+			return TokenType.FALSE;
+		default:
+			throw new JsonParseException("not legal");
+		}
+	}
+
+	protected char[] getTextCharacters() {
+		decodePendingText();
+		return text;
+	}
+
+	protected int getTextLength() {
+		decodePendingText();
+		return textLength;
+	}
+
+	protected String getText() {
+		decodePendingText();
+		return new String(text, 0, textLength);
+	}
+
+	/**
+	 * Compares the text with the given characters. A string still in the
+	 * buffer is compared there as far as its leading plain ASCII run goes,
+	 * and only decoded when that is not enough to tell.
+	 */
+	protected boolean textEquals(final CharSequence chars) {
+		if (textPending) {
+			final int plain = rawPlainEnd - rawStart;
+			if (!rawRegionMatches(chars, Math.min(plain, chars.length()))) {
+				return false;
+			} else if (rawPlainEnd == rawEnd) {
+				return plain == chars.length();
+			} else if (chars.length() <= plain
+					|| chars.length() > rawEnd - rawStart) {
+				// the rest decodes to at least one and at most as many
+				// characters as it has bytes
+				return false;
+			}
+		}
+		decodePendingText();
+		return textLength == chars.length()
+				&& textRegionMatches(chars, chars.length());
+	}
+
+	protected boolean textStartsWith(final CharSequence prefix) {
+		if (textPending) {
+			final int plain = rawPlainEnd - rawStart;
+			if (!rawRegionMatches(prefix, Math.min(plain, prefix.length()))) {
+				return false;
+			} else if (prefix.length() <= plain) {
+				return true;
+			} else if (rawPlainEnd == rawEnd) {
+				return false;
+			}
+		}
+		decodePendingText();
+		return textLength >= prefix.length()
+				&& textRegionMatches(prefix, prefix.length());
+	}
+
+	private boolean rawRegionMatches(final CharSequence chars,
+			final int length) {
+		final byte[] buf = buffer;
+		for (int i = 0; i < length; ++i) {
+			if (buf[rawStart + i] != chars.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean textRegionMatches(final CharSequence chars,
+			final int length) {
+		for (int i = 0; i < length; ++i) {
+			if (text[i] != chars.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	protected Token parseString() throws IOException {
+		scanString();
+
+		return Token.s(getText());
+	}
+
+	/**
+	 * Finds the end of a string whose opening quote was already read and, if
+	 * all of it is in the buffer, leaves it there undecoded until its text is
+	 * asked for. Escapes and UTF-8 are only checked then. A string running
+	 * past the buffer is decoded straight away.
+	 */
+	protected void scanStringLazily() throws IOException {
+		final byte[] buf = buffer;
+		final int end = limit;
+		final int start = position;
+		final int plainEnd = plainRunEnd(buf, start, end);
+		int p = plainEnd;
+		while (p < end && buf[p] != '"') {
+			// step over the escaped byte, or a byte of a UTF-8 sequence
+			p = buf[p] == '\\' ? p + 2 : p + 1;
+			p = p < end ? plainRunEnd(buf, p, end) : end;
+		}
+
+		if (p == end) {
+			scanString();
+			return;
+		}
+		clearText();
+		textPending = true;
+		rawStart = start;
+		rawPlainEnd = plainEnd;
+		rawEnd = p;
+		position = p + 1;
+	}
+
+	/**
+	 * Leaves a string whose opening quote was already read in the stream, to
+	 * be decoded by the first text accessor or piece by piece by readText().
+	 * finishString() skips whatever is left of it.
+	 */
+	protected void openString() {
+		clearText();
+		stringOpen = true;
+	}
+
+	/**
+	 * Skips the rest of a string left open by openString().
+	 */
+	protected void finishString() throws IOException {
+		if (stringOpen) {
+			stringOpen = false;
+			skipString();
+		}
+	}
+
+	/**
+	 * Copies up to length characters of the text, from where the last call
+	 * stopped, and returns how many or -1 when all of it has been read. An
+	 * open string is decoded a chunk at a time on the way, and its text is
+	 * then not available in any other way.
+	 */
+	protected int readText(final char[] chars, final int offset,
+			final int length) throws IOException {
+		if (textPending) {
+			decodePendingText();
+		}
+		if (length == 0) {
+			return 0;
+		} else if (textRead == textLength) {
+			if (!stringOpen) {
+				return -1;
+			}
+
+			textStreamed = true;
+			textRead = 0;
+			textLength = 0;
+			stringOpen = !scanStringUpTo(TEXT_CHUNK);
+			if (textLength == 0) {
+				return -1;
+			}
+		}
+
+		final int count = Math.min(length, textLength - textRead);
+		System.arraycopy(text, textRead, chars, offset, count);
+		textRead += count;
+		return count;
+	}
+
+	/**
+	 * Decodes a string left in the buffer by scanStringLazily(), or in the
+	 * stream by openString(). A buffered one must be decoded before the
+	 * buffer moves on, which only a later token's scan does.
+	 */
+	protected void decodePendingText() {
+		if (textStreamed) {
+			throw new IllegalStateException(
+					"The text has already been read in chunks");
+		} else if (textPending) {
+			final int saved = position;
+			position = rawStart;
+			try {
+				// the closing quote is in the buffer, so this never reads
+				scanString();
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			} finally {
+				position = saved;
+			}
+		} else if (stringOpen) {
+			try {
+				scanString();
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	protected void scanString() throws IOException {
+		clearText();
+		scanStringUpTo(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Decodes the string into the text buffer until the closing quote, which
+	 * is consumed, and returns true, or until the buffer holds about
+	 * maxLength characters and returns false.
+	 */
+	private boolean scanStringUpTo(final int maxLength) throws IOException {
+		while (textLength < maxLength) {
+			// copy the plain ASCII run straight out of the buffer, byte by
+			// byte while it is short
+			final byte[] buf = buffer;
+			final int end = limit;
+			int p = position;
+			final int probe = Math.min(p + 8, end);
+			while (p < probe) {
+				final byte b = buf[p];
+				if (b == '"' || b == '\\' || b < 0) {
+					break;
+				}
+				if (textLength == text.length) {
+					growText();
+				}
+				text[textLength++] = (char) b;
+				++p;
+			}
+
+			// then find the end of a long run eight bytes at a time and copy
+			// all of it in one pass
+			if (p == probe && p < end) {
+				final int start = p;
+				p = plainRunEnd(buf, start,
+						maxLength - textLength < end - start ? start
+								+ maxLength - textLength : end);
+				ensureText(textLength + p - start);
+				final char[] chars = text;
+				final int offset = textLength - start;
+				for (int i = start; i < p; ++i) {
+					chars[offset + i] = (char) buf[i];
+				}
+				textLength += p - start;
+			}
+			position = p;
+			if (textLength >= maxLength) {
+				break;
+			}
+
+			final int c = read();
+			if (c == '"') {
+				return true;
+			} else if (c == '\\') {
+				appendText(parseEscapedCharacter());
+			} else if (c == -1) {
+				throw new JsonParseException("Unterminated string");
+			} else if (c >= 0x80) {
+				parseMultiByteCharacter(c);
+			} else {
+				appendText((char) c);
+			}
+		}
+		return false;
+	}
+
+	protected void parseMultiByteCharacter(final int lead) throws IOException {
+		final int codePoint;
+
+		if (lead >= 0xC2 && lead <= 0xDF) {
+			codePoint = (lead & 0x1F) << 6 | readContinuation();
+		} else if (lead >= 0xE0 && lead <= 0xEF) {
+			codePoint = (lead & 0x0F) << 12 | readContinuation() << 6
+					| readContinuation();
+			if (codePoint < 0x800
+					|| Character.isSurrogate((char) codePoint)) {
+				throw new JsonParseException("Invalid UTF-8 sequence");
+			}
+		} else if (lead >= 0xF0 && lead <= 0xF4) {
+			codePoint = (lead & 0x07) << 18 | readContinuation() << 12
+					| readContinuation() << 6 | readContinuation();
+			if (codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT) {
+				throw new JsonParseException("Invalid UTF-8 sequence");
+			}
+			appendText(Character.highSurrogate(codePoint));
+			appendText(Character.lowSurrogate(codePoint));
+			return;
+		} else {
+			throw new JsonParseException("Invalid UTF-8 sequence");
+		}
+
+		appendText((char) codePoint);
+	}
+
+	private int readContinuation() throws IOException {
+		final int c = read();
+		if ((c & 0xC0) != 0x80) {
+			throw new JsonParseException("Invalid UTF-8 sequence");
+		}
+		return c & 0x3F;
+	}
+
+	protected char parseEscapedCharacter() throws IOException {
+		final int c = read();
+
+		switch (c) {
+		case '"':
+		case '\\':
+		case '/':
+			return (char) c;
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'n':
+			return '\n';
+		case 'u':
+			return parseUnicodeCharacter();
+		default:
+			throw new JsonParseException(
+					"Improperly escaped character sequence: \\" + (char) c);
+		}
+	}
+
+	protected char parseUnicodeCharacter() throws IOException {
+		int value = 0;
+
+		for (int i = 0; i < 4; ++i) {
+			final int c = read();
+			final int digit = c < 0x80 ? Character.digit(c, 16) : -1;
+			if (digit < 0) {
+				throw new JsonParseException(
+						"Non valid unicode value for character at position "
+								+ i + ": " + (char) c);
+			}
+			value = value << 4 | digit;
+		}
+
+		return (char) value;
+	}
+
+	protected Token parseNumber() throws IOException {
+		scanNumber();
+
+		return Token.n(getText());
+	}
+
+	protected void scanNumber() throws IOException {
+		clearText();
+
+		// the value is also accumulated as mantissa * 10^exponent, keeping at
+		// most MAX_MANTISSA_DIGITS significant digits
+		long mantissa = 0;
+		int exponent = 0;
+		int digits = 0;
+		boolean truncated = false;
+		boolean integral = true;
+
+		int c = read();
+
+		final boolean negative = c == '-';
+		if (negative) {
+			appendText((char) c);
+			c = read();
+		}
+
+		if (c == '0') {
+			appendText((char) c);
+			c = read();
+		} else if (isDigit(c)) {
+			do {
+				appendText((char) c);
+				if (digits < MAX_MANTISSA_DIGITS) {
+					mantissa = mantissa * 10 + c - '0';
+					++digits;
+				} else {
+					++exponent;
+					truncated |= c != '0';
+				}
+				c = read();
+			} while (isDigit(c));
+		} else {
+			throw new JsonParseException("Not a valid number");
+		}
+
+		if (c == '.') {
+			integral = false;
+			appendText((char) c);
+			c = read();
+			if (isDigit(c)) {
+				do {
+					appendText((char) c);
+					if (digits < MAX_MANTISSA_DIGITS) {
+						mantissa = mantissa * 10 + c - '0';
+						--exponent;
+						if (mantissa != 0) {
+							++digits;
+						}
+					} else {
+						truncated |= c != '0';
+					}
+					c = read();
+				} while (isDigit(c));
+			} else {
+				throw new JsonParseException("Not a valid number");
+			}
+		}
+
+		if (c == 'e' || c == 'E') {
+			integral = false;
+			appendText((char) c);
+			c = read();
+			final boolean negativeExponent = c == '-';
+			if (c == '+' || c == '-') {
+				appendText((char) c);
+				c = read();
+			}
+			if (isDigit(c)) {
+				int explicit = 0;
+				do {
+					appendText((char) c);
+					if (explicit < MAX_EXPONENT) {
+						explicit = explicit * 10 + c - '0';
+					}
+					c = read();
+				} while (isDigit(c));
+				exponent += negativeExponent ? -explicit : explicit;
+			} else {
+				throw new JsonParseException("Not a valid number");
+			}
+		}
+
+		if (c != -1) {
+			unread();
+		}
+
+		numberMantissa = mantissa;
+		numberExponent = exponent;
+		numberNegative = negative;
+		numberTruncated = truncated;
+		numberIntegral = integral;
+	}
+
+	protected boolean fitsInLong() {
+		return numberIntegral && !numberTruncated && numberExponent == 0
+				&& (numberMantissa >= 0 || numberNegative
+						&& numberMantissa == Long.MIN_VALUE);
+	}
+
+	protected long getLong() {
+		if (!fitsInLong()) {
+			throw new NumberFormatException("Not a long: " + getText());
+		}
+		return numberNegative ? -numberMantissa : numberMantissa;
+	}
+
+	protected double getDouble() {
+		if (!numberTruncated) {
+			final double value = JsonNumbers.toDouble(numberNegative,
+					numberMantissa, numberExponent);
+			if (!Double.isNaN(value)) {
+				return value;
+			}
+		}
+		return Double.parseDouble(getText());
+	}
+
+	/**
+	 * The number's leading significant digits without its sign, worth
+	 * getNumberMantissa() * 10^getNumberExponent() unless truncated.
+	 */
+	protected long getNumberMantissa() {
+		return numberMantissa;
+	}
+
+	protected int getNumberExponent() {
+		return numberExponent;
+	}
+
+	protected boolean isNumberTruncated() {
+		return numberTruncated;
+	}
+
+	protected BigDecimal getBigDecimal() {
+		if (fitsInLong()) {
+			return BigDecimal.valueOf(getLong());
+		}
+		return new BigDecimal(text, 0, textLength);
+	}
+
+	/**
+	 * Consumes whitespace and returns the byte after it as 0-255, or -1 at the
+	 * end of the input.
+	 */
+	protected int nextNonWhitespace() throws IOException {
+		while (true) {
+			final byte[] buf = buffer;
+			final int end = limit;
+			int p = position;
+			while (p < end) {
+				final int c = buf[p++] & 0xFF;
+				// every whitespace character in 0-255 is at or below a space
+				if (c > ' ' || !Character.isWhitespace(c)) {
+					position = p;
+					return c;
+				}
+			}
+			position = p;
+
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Returns the next non-whitespace byte without consuming it, or -1 at the
+	 * end of the input.
+	 */
+	protected int peek() throws IOException {
+		final int c = nextNonWhitespace();
+
+		if (c != -1) {
+			unread();
+		}
+		return c;
+	}
+
+	/**
+	 * Skips the next value without decoding it. Only brackets, quotes and
+	 * escapes are looked at, so the skipped content is not validated.
+	 */
+	protected void skipValue() throws IOException {
+		final int c = peek();
+
+		switch (c) {
+		case '{':
+		case '[':
+			read();
+			skipToClose();
+			break;
+		case '"':
+			read();
+			skipString();
+			break;
+		case 'n':
+			parseExactWord("null");
+			break;
+		case 't':
+			parseExactWord("true");
+			break;
+		case 'f':
+			parseExactWord("false");
+			break;
+		default:
+			if (c != '-' && !isDigit(c)) {
+				throw new JsonParseException(
+						"Illegal state:  Expected Value, not found.");
+			}
+			skipNumber();
+		}
+	}
+
+	/**
+	 * Skips up to and including the bracket or brace closing the innermost
+	 * open object or array.
+	 */
+	protected void skipToClose() throws IOException {
+		int depth = 1;
+
+		while (true) {
+			final byte[] buf = buffer;
+			int p = position;
+			final int end = limit;
+			boolean quote = false;
+			while (p < end) {
+				final byte b = buf[p++];
+				if (b == '"') {
+					quote = true;
+					break;
+				} else if (b == '{' || b == '[') {
+					++depth;
+				} else if ((b == '}' || b == ']') && --depth == 0) {
+					position = p;
+					return;
+				}
+			}
+			position = p;
+
+			if (quote) {
+				skipString();
+			} else if (!fill()) {
+				throw new JsonParseException("Unexpected end of input");
+			}
+		}
+	}
+
+	/**
+	 * Skips the rest of a string whose opening quote was already read.
+	 */
+	protected void skipString() throws IOException {
+		while (true) {
+			final byte[] buf = buffer;
+			final int end = limit;
+			int p = plainRunEnd(buf, position, end);
+			// multi-byte characters need no decoding here
+			while (p < end && buf[p] < 0) {
+				p = plainRunEnd(buf, p + 1, end);
+			}
+
+			if (p == end) {
+				position = p;
+				if (!fill()) {
+					throw new JsonParseException("Unterminated string");
+				}
+			} else {
+				position = p + 1;
+				if (buf[p] == '"') {
+					return;
+				}
+				// the escaped byte may be past the end of the buffer
+				if (read() == -1) {
+					throw new JsonParseException("Unterminated string");
+				}
+			}
+		}
+	}
+
+	private void skipNumber() throws IOException {
+		int c;
+
+		do {
+			c = read();
+		} while (isDigit(c) || c == '-' || c == '+' || c == '.' || c == 'e'
+				|| c == 'E');
+
+		if (c != -1) {
+			unread();
+		}
+	}
+
+	protected Token parseNull() throws IOException {
+		parseExactWord("null");
+
+		return Token.NULL;
+	}
+
+	protected Token parseFalse() throws IOException {
+		parseExactWord("false");
+
+		return Token.FALSE;
+	}
+
+	protected Token parseTrue() throws IOException {
+		parseExactWord("true");
+
+		return Token.TRUE;
+	}
+
+	protected void parseExactWord(final CharSequence word) throws IOException {
+		for (int i = 0; i < word.length(); ++i) {
+			if (word.charAt(i) != read()) {
+				throw new JsonParseException("expected word: " + word
+						+ " not found");
+			}
+		}
+	}
+
+	/**
+	 * Returns the next byte as 0-255, or -1 at the end of the input.
+	 */
+	protected int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++] & 0xFF;
+	}
+
+	/**
+	 * Steps back over the byte just returned by {@link #read()}.
+	 */
+	protected void unread() {
+		--position;
+	}
+
+	protected byte[] getBuffer() {
+		return buffer;
+	}
+
+	protected int getPosition() {
+		return position;
+	}
+
+	protected void setPosition(final int position) {
+		this.position = position;
+	}
+
+	protected int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Reads on from the given bytes, for subclasses that fill a buffer of
+	 * their own. Unlike reset(), the current token's text is kept.
+	 */
+	protected void setBuffer(final byte[] buffer, final int position,
+			final int limit) {
+		input = null;
+		this.buffer = buffer;
+		this.position = position;
+		this.limit = limit;
+	}
+
+	/**
+	 * Runs the listener before each read from the stream, which may block,
+	 * or none when null.
+	 */
+	protected void setFillListener(final Runnable fillListener) {
+		this.fillListener = fillListener;
+	}
+
+	protected boolean fill() throws IOException {
+		if (input == null) {
+			// reading a byte array in place, which is all in the buffer
+			return false;
+		} else if (fillListener != null) {
+			fillListener.run();
+		}
+
+		int n;
+		do {
+			n = input.read(buffer, 0, buffer.length);
+		} while (n == 0);
+
+		if (n < 0) {
+			return false;
+		}
+
+		position = 0;
+		limit = n;
+		return true;
+	}
+
+	private void clearText() {
+		textLength = 0;
+		textRead = 0;
+		textPending = false;
+		stringOpen = false;
+		textStreamed = false;
+	}
+
+	private static boolean isDigit(final int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private void appendText(final char c) {
+		if (textLength == text.length) {
+			growText();
+		}
+		text[textLength++] = c;
+	}
+
+	private void growText() {
+		final char[] grown = new char[text.length << 1];
+		System.arraycopy(text, 0, grown, 0, textLength);
+		text = grown;
+	}
+
+	private void ensureText(final int capacity) {
+		if (capacity > text.length) {
+			text = Arrays.copyOf(text, Math.max(capacity, text.length << 1));
+		}
+	}
+
+	/**
+	 * Returns the position of the first quote, backslash or non-ASCII byte
+	 * between start and end, or end if there is none.
+	 */
+	private static int plainRunEnd(final byte[] buf, final int start,
+			final int end) {
+		int p = start;
+		while (p <= end - 8) {
+			final long specials = Swar.stringSpecials(Swar.get(buf, p));
+			if (specials != 0) {
+				return p + (Long.numberOfTrailingZeros(specials) >>> 3);
+			}
+			p += 8;
+		}
+		while (p < end) {
+			final byte b = buf[p];
+			if (b == '"' || b == '\\' || b < 0) {
+				return p;
+			}
+			++p;
+		}
+		return end;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (input != null) {
+			input.close();
+		}
+	}
+
+	/**
+	 * Feeds a Reader through the byte tokenizer by encoding it as UTF-8 in
+	 * bulk.
+	 */
+	private static class Utf8ReaderInputStream extends InputStream {
+		private final Reader reader;
+		private final CharsetEncoder encoder;
+		private final CharBuffer chars;
+		private final ByteBuffer bytes;
+		private boolean endOfInput;
+
+		private Utf8ReaderInputStream(final Reader reader) {
+			this.reader = reader;
+			encoder = StandardCharsets.UTF_8.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			chars = CharBuffer.allocate(BUFFER_SIZE);
+			chars.flip();
+			// 3 bytes per char is the most UTF-8 ever needs
+			bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+			bytes.flip();
+			endOfInput = false;
+		}
+
+		@Override
+		public int read() throws IOException {
+			while (!bytes.hasRemaining()) {
+				if (!encodeMore()) {
+					return -1;
+				}
+			}
+			return bytes.get() & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len)
+				throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (!bytes.hasRemaining()) {
+				if (!encodeMore()) {
+					return -1;
+				}
+			}
+
+			final int n = Math.min(len, bytes.remaining());
+			bytes.get(b, off, n);
+			return n;
+		}
+
+		private boolean encodeMore() throws IOException {
+			if (endOfInput) {
+				return false;
+			}
+
+			chars.compact();
+			final int n = reader.read(chars.array(), chars.position(),
+					chars.remaining());
+			if (n > 0) {
+				chars.position(chars.position() + n);
+			}
+			chars.flip();
+			endOfInput = n < 0;
+
+			bytes.clear();
+			encoder.encode(chars, bytes, endOfInput);
+			if (endOfInput) {
+				encoder.flush(bytes);
+			}
+			bytes.flip();
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	protected static class Token {
+		protected static final Token END = new Token("", TokenType.END);
+		protected static final Token OPEN_BRACE = new Token("{",
+				TokenType.OPEN_BRACE);
+		protected static final Token CLOSE_BRACE = new Token("}",
+				TokenType.CLOSE_BRACE);
+		protected static final Token OPEN_BRACKET = new Token("[",
+				TokenType.OPEN_BRACKET);
+		protected static final Token CLOSE_BRACKET = new Token("]",
+				TokenType.CLOSE_BRACKET);
+		protected static final Token NULL = new Token("null", TokenType.NULL);
+		protected static final Token FALSE = new Token("false", TokenType.FALSE);
+		protected static final Token TRUE = new Token("true", TokenType.TRUE);
+		protected static final Token COLON = new Token(":", TokenType.COLON);
+		protected static final Token COMMA = new Token(",", TokenType.COMMA);
+
+		// indexed by TokenType.code
+		private static final Token[] SHARED = { null, null, END, OPEN_BRACE,
+				CLOSE_BRACE, OPEN_BRACKET, CLOSE_BRACKET, NULL, FALSE, TRUE,
+				COLON, COMMA };
+
+		protected final String value;
+		protected final TokenType type;
+
+		private Token(final String value, final TokenType type) {
+			this.value = value;
+			this.type = type;
+		}
+
+		private static Token s(final String s) {
+			return new Token(s, TokenType.STRING);
+		}
+
+		private static Token n(final String n) {
+			return new Token(n, TokenType.NUMBER);
+		}
+
+		private static Token of(final TokenType type) {
+			final Token token = SHARED[type.code];
+			if (token == null) {
+				throw new IllegalArgumentException("No shared token for type");
+			}
+			return token;
+		}
+	}
+
+	protected static class TokenType {
+		protected static final int COUNT = 12;
+
+		protected static final TokenType STRING = new TokenType(0);
+		protected static final TokenType NUMBER = new TokenType(1);
+		protected static final TokenType END = new TokenType(2);
+		protected static final TokenType OPEN_BRACE = new TokenType(3);
+		protected static final TokenType CLOSE_BRACE = new TokenType(4);
+		protected static final TokenType OPEN_BRACKET = new TokenType(5);
+		protected static final TokenType CLOSE_BRACKET = new TokenType(6);
+		protected static final TokenType NULL = new TokenType(7);
+		protected static final TokenType FALSE = new TokenType(8);
+		protected static final TokenType TRUE = new TokenType(9);
+		protected static final TokenType COLON = new TokenType(10);
+		protected static final TokenType COMMA = new TokenType(11);
+
+		protected final int code;
+
+		private TokenType(final int code) {
+			this.code = code;
+		}
+	}
+}
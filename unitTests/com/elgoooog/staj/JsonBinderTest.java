@@ -0,0 +1,292 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class JsonBinderTest {
+	private final JsonBinder binder = new StreamingJsonReaderFactory()
+			.createJsonBinder();
+
+	@Test
+	public void testFields() {
+		final Order order = read("{\"id\": 9007199254740993, \"quantity\": 3,"
+				+ " \"small\": -128, \"medium\": 32767, \"price\": 19.99,"
+				+ " \"ratio\": 0.5, \"express\": true, \"note\": \"gift\","
+				+ " \"unknown\": {\"a\": [1, {\"b\": 2}]},"
+				+ " \"status\": \"SHIPPED\", \"discount\": null,"
+				+ " \"total\": 12345678901234567890.5,"
+				+ " \"serial\": 12345678901234567890,"
+				+ " \"customer\": {\"name\": \"Jane\", \"country\": \"NZ\"},"
+				+ " \"lines\": [{\"sku\": \"a\", \"count\": 1},"
+				+ " {\"sku\": \"b\", \"count\": 2}],"
+				+ " \"scores\": [1, 2, 3, 4, 5, 6, 7, 8, 9],"
+				+ " \"weights\": [0.25, 1e2], \"flags\": [true, false],"
+				+ " \"tags\": [\"new\", \"gift\", \"new\"],"
+				+ " \"stock\": {\"a\": 1, \"b\": null}, \"extra\": [1, 2.5,"
+				+ " \"x\", null, {\"y\": false}], \"names\": [\"n\"]}", Order.class);
+
+		assertEquals(9007199254740993L, order.id);
+		assertEquals(3, order.quantity);
+		assertEquals(-128, order.small);
+		assertEquals(32767, order.medium);
+		assertEquals(19.99, order.price, 0);
+		assertEquals(0.5f, order.ratio, 0);
+		assertTrue(order.express);
+		assertEquals("gift", order.note);
+		assertEquals(Status.SHIPPED, order.status);
+		assertNull(order.discount);
+		assertEquals(new BigDecimal("12345678901234567890.5"), order.total);
+		assertEquals(new BigInteger("12345678901234567890"), order.serial);
+		assertEquals("Jane", order.customer.name);
+		assertEquals("NZ", order.customer.country);
+		assertEquals(2, order.lines.size());
+		assertEquals("b", order.lines.get(1).sku);
+		assertEquals(2, order.lines.get(1).count);
+		assertEquals("[1, 2, 3, 4, 5, 6, 7, 8, 9]",
+				Arrays.toString(order.scores));
+		assertEquals("[0.25, 100.0]", Arrays.toString(order.weights));
+		assertEquals("[true, false]", Arrays.toString(order.flags));
+		assertEquals("[new, gift]", order.tags.toString());
+		assertEquals("{a=1, b=null}", order.stock.toString());
+		assertEquals("[1, 2.5, x, null, {y=false}]", order.extra.toString());
+		assertArrayEquals(new String[] { "n" }, order.names);
+	}
+
+	@Test
+	public void testRecord() {
+		final Point point = read("{\"label\": \"p\", \"x\": 1.5, \"y\": -2.25,"
+				+ " \"z\": 7, \"visible\": true, \"weight\": 3,"
+				+ " \"skipped\": [1, [2]], \"next\": {\"x\": 4}}", Point.class);
+
+		assertEquals(new Point(1.5, -2.25f, 7, true, 3, "p", new Point(4, 0,
+				0, false, 0, null, null)), point);
+	}
+
+	@Test
+	public void testNullsAndAbsentKeys() {
+		final Order read = read("{\"quantity\": null, \"note\": null}",
+				Order.class);
+		assertEquals(0, read.quantity);
+		assertNull(read.note);
+
+		assertEquals(new Point(0, 0, 0, false, 0, null, null), read(
+				"{\"x\": null}", Point.class));
+	}
+
+	@Test
+	public void testInheritedAndRecursive() {
+		final Node node = read("{\"name\": \"root\", \"id\": 1, \"children\":"
+				+ " [{\"name\": \"leaf\", \"id\": 2, \"children\": []}]}",
+				Node.class);
+
+		assertEquals("root", node.name);
+		assertEquals(1, node.id);
+		assertEquals(1, node.children.size());
+		assertEquals("leaf", node.children.get(0).name);
+		assertEquals(2, node.children.get(0).id);
+	}
+
+	@Test
+	public void testCollidingKeys() {
+		// "Aa" and "BB" have the same String hash code
+		final Colliding colliding = read("{\"BB\": 2, \"Aa\": 1, \"Ab\": 3}",
+				Colliding.class);
+		assertEquals(1, colliding.Aa);
+		assertEquals(2, colliding.BB);
+	}
+
+	@Test
+	public void testLazyKeys() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setLazyStrings(true);
+		final Customer customer = factory.createJsonBinder().read(
+				bytes("{\"na\\u006de\": \"Jane\", \"country\": \"N\\u005a\"}"),
+				Customer.class);
+		assertEquals("Jane", customer.name);
+		assertEquals("NZ", customer.country);
+	}
+
+	@Test
+	public void testOneValueAtATime() {
+		final StreamingJsonCursor cursor = new StreamingJsonReaderFactory()
+				.createStreamingJsonCursor(bytes("[{\"sku\": \"a\","
+						+ " \"count\": 1}, {\"sku\": \"b\"}]"));
+
+		final List<Line> lines = new ArrayList<Line>();
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		while (cursor.next() != StreamingJsonCursor.END_ARRAY) {
+			lines.add(binder.read(cursor, Line.class));
+		}
+		assertEquals(2, lines.size());
+		assertEquals("a", lines.get(0).sku);
+		assertEquals(1, lines.get(0).count);
+		assertEquals("b", lines.get(1).sku);
+		assertEquals(StreamingJsonCursor.END, cursor.next());
+	}
+
+	@Test
+	public void testPrimitivesAtTheRoot() {
+		assertEquals(Arrays.asList(1L, 2L), Arrays.asList(read("[1, 2]",
+				Long[].class)));
+		assertEquals("[1, 2]", Arrays.toString(read("[1, 2]", long[].class)));
+	}
+
+	@Test
+	public void testMismatches() {
+		assertFails("{\"quantity\": \"3\"}", Order.class,
+				"Cannot bind a string to Order.quantity");
+		assertFails("{\"quantity\": 1.5}", Order.class,
+				"Cannot bind 1.5 to Order.quantity");
+		assertFails("{\"small\": 128}", Order.class,
+				"Cannot bind 128 to Order.small");
+		assertFails("{\"status\": \"LOST\"}", Order.class,
+				"No Status constant LOST");
+		assertFails("{\"customer\": []}", Order.class,
+				"Cannot bind an array to Customer");
+		assertFails("[1, true]", int[].class, "Cannot bind true to int[]");
+		assertFails("{\"serial\": 1.5}", Order.class,
+				"Cannot bind 1.5 to BigInteger");
+	}
+
+	@Test
+	public void testTrailingValue() {
+		assertEquals("Jane",
+				read("{\"name\": \"Jane\"} {}", Customer.class).name);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testTrailingValue_strictEnd() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setStrictEnd(true);
+		factory.createJsonBinder().read(bytes("{} {}"), Customer.class);
+	}
+
+	@Test
+	public void testMultipleDocuments() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setMultipleDocuments(true);
+		final Customer customer = factory.createJsonBinder().read(
+				bytes("{\"name\": \"a\"} {\"name\": \"b\"}"),
+				Customer.class);
+		assertEquals("a", customer.name);
+	}
+
+	@Test
+	public void testReleasedOnFailure() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final ReaderPool pool = ReaderPool.threadLocal();
+		factory.setPool(pool);
+		try {
+			factory.createJsonBinder()
+					.read(bytes("{\"count\": }"), Line.class);
+			fail("Expected a JsonParseException");
+		} catch (final JsonParseException e) {
+			assertNotNull(pool.pollCursor());
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAbstractType() {
+		read("{}", Number.class);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testNonStringMapKeys() {
+		read("{\"keys\": {}}", IntKeys.class);
+	}
+
+	private void assertFails(final String json, final Class<?> type,
+			final String message) {
+		try {
+			read(json, type);
+			throw new AssertionError("Expected a JsonParseException");
+		} catch (final JsonParseException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+
+	private <T> T read(final String json, final Class<T> type) {
+		return binder.read(bytes(json), type);
+	}
+
+	private static byte[] bytes(final String json) {
+		return json.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private enum Status {
+		PLACED, SHIPPED
+	}
+
+	private static class Order {
+		private long id;
+		private int quantity;
+		private byte small;
+		private short medium;
+		private double price;
+		private float ratio;
+		private boolean express;
+		private String note;
+		private Status status;
+		private Integer discount;
+		private BigDecimal total;
+		private BigInteger serial;
+		private Customer customer;
+		private List<Line> lines;
+		private int[] scores;
+		private double[] weights;
+		private boolean[] flags;
+		private Set<String> tags;
+		private Map<String, Integer> stock;
+		private List<?> extra;
+		private String[] names;
+	}
+
+	private static class Customer {
+		private String name;
+		private String country;
+	}
+
+	private static class Line {
+		private String sku;
+		private int count;
+	}
+
+	private record Point(double x, float y, long z, boolean visible,
+			int weight, String label, Point next) {
+	}
+
+	private static class Named {
+		protected String name;
+	}
+
+	private static class Node extends Named {
+		private static int created;
+		private transient int ignored;
+		private int id;
+		private List<Node> children;
+	}
+
+	private static class Colliding {
+		private int Aa;
+		private int BB;
+	}
+
+	private static class IntKeys {
+		private Map<Integer, String> keys;
+	}
+}
@@ -0,0 +1,203 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+public class JsonEventPublisherTest {
+	private static final String JSON = "{\"a\":[1,2,3],\"b\":\"x\",\"c\":null}";
+
+	private final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+
+	@Test
+	public void testBatchesOnDemand() {
+		final TrackingInputStream input = new TrackingInputStream(JSON);
+		final JsonEventPublisher publisher = factory.createJsonEventPublisher(
+				input, Runnable::run, 4);
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+
+		// nothing is parsed until there is demand
+		assertFalse(input.read);
+		assertTrue(subscriber.batches.isEmpty());
+
+		subscriber.subscription.request(1);
+		assertTrue(input.read);
+		assertEquals("[[start, startObj, key:a, startArr]]",
+				subscriber.batches.toString());
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals("[[start, startObj, key:a, startArr], "
+				+ "[number:1, number:2, number:3, endArr], "
+				+ "[key:b, string:x, key:c, null], [endObj, end]]",
+				subscriber.batches.toString());
+		assertTrue(subscriber.completed);
+		assertNull(subscriber.error);
+		assertTrue(input.closed);
+	}
+
+	@Test
+	public void testCancel() {
+		final TrackingInputStream input = new TrackingInputStream(JSON);
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		factory.createJsonEventPublisher(input, Runnable::run, 2).subscribe(
+				subscriber);
+
+		subscriber.subscription.request(1);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(5);
+
+		assertEquals(1, subscriber.batches.size());
+		assertFalse(subscriber.completed);
+		assertNull(subscriber.error);
+		assertTrue(input.closed);
+	}
+
+	@Test
+	public void testParseError() {
+		final TrackingInputStream input = new TrackingInputStream("[1,]");
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		factory.createJsonEventPublisher(input, Runnable::run).subscribe(
+				subscriber);
+
+		subscriber.subscription.request(1);
+		assertTrue(subscriber.batches.isEmpty());
+		assertTrue(subscriber.error instanceof JsonParseException);
+		assertTrue(input.closed);
+	}
+
+	@Test
+	public void testInvalidRequest() {
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		factory.createJsonEventPublisher(new TrackingInputStream(JSON),
+				Runnable::run).subscribe(subscriber);
+
+		subscriber.subscription.request(0);
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+	}
+
+	@Test
+	public void testSubscribeTwice() {
+		final JsonEventPublisher publisher = factory.createJsonEventPublisher(
+				new TrackingInputStream(JSON), Runnable::run);
+		publisher.subscribe(new RecordingSubscriber());
+
+		final RecordingSubscriber second = new RecordingSubscriber();
+		publisher.subscribe(second);
+		assertTrue(second.error instanceof IllegalStateException);
+	}
+
+	@Test
+	public void testExecutor() throws Exception {
+		final StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 10000; ++i) {
+			json.append(i).append(',');
+		}
+		json.append("0]");
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final CountDownLatch done = new CountDownLatch(1);
+			final List<JsonEvent> events = new ArrayList<JsonEvent>();
+			factory.createJsonEventPublisher(
+					new TrackingInputStream(json.toString()), executor, 64)
+					.subscribe(new Flow.Subscriber<List<JsonEvent>>() {
+						private Flow.Subscription subscription;
+
+						@Override
+						public void onSubscribe(
+								final Flow.Subscription subscription) {
+							this.subscription = subscription;
+							subscription.request(1);
+						}
+
+						@Override
+						public void onNext(final List<JsonEvent> batch) {
+							events.addAll(batch);
+							subscription.request(1);
+						}
+
+						@Override
+						public void onError(final Throwable throwable) {
+							done.countDown();
+						}
+
+						@Override
+						public void onComplete() {
+							done.countDown();
+						}
+					});
+
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertEquals(10005, events.size());
+			assertEquals(JsonEvent.END, events.get(events.size() - 1));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static class RecordingSubscriber implements
+			Flow.Subscriber<List<JsonEvent>> {
+		private final List<List<JsonEvent>> batches = new ArrayList<List<JsonEvent>>();
+		private Flow.Subscription subscription;
+		private boolean completed;
+		private Throwable error;
+
+		@Override
+		public void onSubscribe(final Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(final List<JsonEvent> batch) {
+			batches.add(batch);
+		}
+
+		@Override
+		public void onError(final Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+
+	private static class TrackingInputStream extends ByteArrayInputStream {
+		private boolean read;
+		private boolean closed;
+
+		private TrackingInputStream(final String json) {
+			super(json.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public synchronized int read(final byte[] b, final int off,
+				final int len) {
+			read = true;
+			return super.read(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+		}
+	}
+}
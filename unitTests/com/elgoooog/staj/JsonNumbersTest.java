@@ -0,0 +1,57 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class JsonNumbersTest {
+	@Test
+	public void testToDouble_edgeCases() {
+		final String[] values = { "0", "1", "0.1", "3.14159", "1e23",
+				"9007199254740993", "2.2250738585072011e-308",
+				"2.2250738585072014e-308", "4.9e-324", "2.4703282292062328e-324",
+				"1.7976931348623157e308", "1.7976931348623159e308", "1e-400",
+				"1e400", "7.2057594037927933e16", "9999999999999999999" };
+
+		for (final String value : values) {
+			final BigDecimal decimal = new BigDecimal(value);
+			assertToDouble(value, Long.parseUnsignedLong(decimal
+					.unscaledValue().toString()), -decimal.scale());
+		}
+	}
+
+	@Test
+	public void testToDouble_random() {
+		final Random random = new Random(7);
+
+		for (int i = 0; i < 200000; ++i) {
+			final int digits = 1 + random.nextInt(19);
+			final StringBuilder builder = new StringBuilder();
+			long mantissa = 0;
+			for (int d = 0; d < digits; ++d) {
+				final int digit = d == 0 ? 1 + random.nextInt(9) : random
+						.nextInt(10);
+				builder.append(digit);
+				mantissa = mantissa * 10 + digit;
+			}
+			final int exponent = random.nextInt(4) == 0 ? random.nextInt(700) - 360
+					: random.nextInt(60) - 30;
+
+			assertToDouble(builder.append('e').append(exponent).toString(),
+					mantissa, exponent);
+		}
+	}
+
+	private static void assertToDouble(final String value,
+			final long mantissa, final int exponent) {
+		assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+				Double.doubleToLongBits(JsonNumbers.toDouble(false, mantissa,
+						exponent)));
+		assertEquals(value, Double.doubleToLongBits(-Double
+				.parseDouble(value)), Double.doubleToLongBits(JsonNumbers
+				.toDouble(true, mantissa, exponent)));
+	}
+}
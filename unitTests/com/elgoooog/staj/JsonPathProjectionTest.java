@@ -0,0 +1,103 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+public class JsonPathProjectionTest {
+	@Test
+	public void testArrayWildcard() {
+		assertEquals(
+				"[startObj, key:items, startArr, startObj, key:id, number:1, endObj, startObj, key:id, number:2, endObj, endArr, endObj]",
+				project("{\"count\": 2, \"items\": [{\"id\": 1, \"tags\": [\"a\"]}, {\"name\": \"x\", \"id\": 2}]}",
+						"$.items[*].id"));
+	}
+
+	@Test
+	public void testArrayIndex() {
+		assertEquals("[startArr, number:20, endArr]",
+				project("[10, 20, 30]", "$[1]"));
+	}
+
+	@Test
+	public void testMatchedSubtreeIsComplete() {
+		assertEquals(
+				"[startObj, key:meta, startObj, key:ts, startArr, number:1, startObj, endObj, endArr, endObj, endObj]",
+				project("{\"meta\": {\"x\": {}, \"ts\": [1, {}]}, \"y\": [[]]}",
+						"$.meta.ts"));
+	}
+
+	@Test
+	public void testSeveralPaths() {
+		assertEquals(
+				"[startObj, key:a, number:1, key:b, startObj, key:c, true, endObj, endObj]",
+				project("{\"a\": 1, \"b\": {\"c\": true, \"d\": false}, \"e\": null}",
+						"$.a", "$['b'].c"));
+	}
+
+	@Test
+	public void testScalarOnPartialPath() {
+		assertEquals("[startObj, endObj]",
+				project("{\"a\": \"text\"}", "$.a.b"));
+	}
+
+	@Test
+	public void testRoot() {
+		assertEquals("[startArr, number:1, endArr]", project("[1]", "$"));
+	}
+
+	@Test
+	public void testObjectWildcard() {
+		assertEquals(
+				"[startObj, key:a, startObj, key:id, number:1, endObj, key:b, startObj, key:id, number:2, endObj, endObj]",
+				project("{\"a\": {\"id\": 1, \"x\": 0}, \"b\": {\"id\": 2}}",
+						"$.*.id"));
+	}
+
+	@Test
+	public void testSkipChildren() {
+		final StreamingJsonParser parser = new ProjectingStreamingJsonParser(
+				new TokenReader(new StringReader(
+						"{\"a\": {\"b\": 1, \"c\": 2}, \"d\": {\"b\": 3}}")),
+				new JsonPathProjection("$.*.b"));
+
+		assertEquals(JsonEvent.START_OBJECT, parser.readNext());
+		assertEquals("a", parser.readNext().value);
+		assertEquals(JsonEvent.START_OBJECT, parser.readNext());
+		parser.skipChildren();
+		assertEquals("d", parser.readNext().value);
+		assertEquals(true, parser.skipValue());
+		assertEquals(false, parser.skipValue());
+		assertEquals(JsonEvent.END_OBJECT, parser.readNext());
+		assertEquals(JsonEvent.END, parser.readNext());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPath() {
+		new JsonPathProjection("items[0]");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidIndex() {
+		new JsonPathProjection("$.items[x]");
+	}
+
+	private static String project(final String json, final String... paths) {
+		final StreamingJsonParser parser = new ProjectingStreamingJsonParser(
+				new TokenReader(new StringReader(json)),
+				new JsonPathProjection(paths));
+
+		final List<JsonEvent> events = new ArrayList<>();
+		JsonEvent event;
+		while ((event = parser.readNext()) != JsonEvent.END) {
+			events.add(event);
+		}
+		return events.toString();
+	}
+}
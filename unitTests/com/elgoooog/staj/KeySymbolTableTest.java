@@ -0,0 +1,95 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class KeySymbolTableTest {
+	@Test
+	public void testIntern() {
+		final KeySymbolTable table = new KeySymbolTable(16);
+
+		final String first = table.intern("xnamex".toCharArray(), 1, 4);
+		final String second = table.intern("name".toCharArray(), 0, 4);
+
+		assertEquals("name", first);
+		assertSame(first, second);
+		assertEquals(1, table.size());
+		assertEquals(1, table.getHits());
+		assertEquals(1, table.getMisses());
+	}
+
+	@Test
+	public void testIntern_collidingHashes() {
+		final KeySymbolTable table = new KeySymbolTable(16);
+
+		// "Aa" and "BB" share a String hash code
+		final String aa = table.intern("Aa".toCharArray(), 0, 2);
+		final String bb = table.intern("BB".toCharArray(), 0, 2);
+
+		assertEquals("Aa", aa);
+		assertEquals("BB", bb);
+		assertSame(aa, table.intern("Aa".toCharArray(), 0, 2));
+		assertSame(bb, table.intern("BB".toCharArray(), 0, 2));
+	}
+
+	@Test
+	public void testIntern_full() {
+		final KeySymbolTable table = new KeySymbolTable(2);
+
+		table.intern("a".toCharArray(), 0, 1);
+		table.intern("b".toCharArray(), 0, 1);
+		final String c = table.intern("c".toCharArray(), 0, 1);
+
+		assertEquals("c", c);
+		assertEquals(2, table.size());
+		assertNotSame(c, table.intern("c".toCharArray(), 0, 1));
+		assertEquals(4, table.getMisses());
+
+		table.resetCounters();
+		assertEquals(0, table.getMisses());
+	}
+
+	@Test
+	public void testIntern_concurrent() throws Exception {
+		final KeySymbolTable table = new KeySymbolTable(1024);
+		final int threads = 4;
+		final CyclicBarrier barrier = new CyclicBarrier(threads);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<String[]>> results = new ArrayList<>();
+			for (int t = 0; t < threads; ++t) {
+				results.add(executor.submit(() -> {
+					final String[] keys = new String[1000];
+					barrier.await();
+					for (int i = 0; i < keys.length; ++i) {
+						final char[] chars = ("key" + i).toCharArray();
+						keys[i] = table.intern(chars, 0, chars.length);
+					}
+					return keys;
+				}));
+			}
+
+			final String[] first = results.get(0).get();
+			for (final Future<String[]> result : results) {
+				final String[] keys = result.get();
+				for (int i = 0; i < keys.length; ++i) {
+					assertSame(first[i], keys[i]);
+				}
+			}
+			assertEquals(1000, table.size());
+			assertEquals(1000 * threads, table.getHits() + table.getMisses());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
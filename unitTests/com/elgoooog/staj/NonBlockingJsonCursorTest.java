@@ -0,0 +1,228 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class NonBlockingJsonCursorTest {
+	private static final String[] DOCUMENTS = {
+			"{\"name\":\"caf\u00e9 \u20ac\ud83d\ude00\",\"escaped\":\"a\\\"b\\u00e9\\n\"}",
+			"[1, -0.5e+10, 12345678901234567890, true, false, null, []]",
+			"{\"a\":{\"b\":[{\"c\":\"" + "long text ".repeat(20) + "\"}]}}",
+			" [ \"x\" , { } ] " };
+
+	@Test
+	public void testSplitAtEveryOffset() {
+		for (final String document : DOCUMENTS) {
+			final byte[] json = document.getBytes(StandardCharsets.UTF_8);
+			final String expected = events(new StreamingJsonCursor(
+					new TokenReader(json, 0, json.length)));
+
+			for (final boolean lazy : new boolean[] { false, true }) {
+				for (int split = 0; split <= json.length; ++split) {
+					final NonBlockingJsonCursor cursor = newCursor(lazy);
+					final StringBuilder events = new StringBuilder("0 ");
+					cursor.feed(json, 0, split);
+					drain(cursor, events);
+					cursor.feed(ByteBuffer.wrap(json, split, json.length
+							- split));
+					cursor.endOfInput();
+					drain(cursor, events);
+					assertEquals(document + " split at " + split, expected,
+							events.toString());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLazyStringKeptAcrossFeed() {
+		final NonBlockingJsonCursor cursor = newCursor(true);
+		cursor.feed(bytes("[\"abc\", \"de"));
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.STRING, cursor.next());
+		// the buffer is compacted under the undecoded string
+		cursor.feed(bytes("f\"]"));
+		assertEquals("abc", cursor.getText());
+		assertEquals(StreamingJsonCursor.STRING, cursor.next());
+		assertEquals("def", cursor.getText());
+	}
+
+	@Test
+	public void testByteAtATime() {
+		for (final String document : DOCUMENTS) {
+			final byte[] json = document.getBytes(StandardCharsets.UTF_8);
+			final NonBlockingJsonCursor cursor = new NonBlockingJsonCursor();
+			final StringBuilder events = new StringBuilder("0 ");
+			for (int i = 0; i < json.length; ++i) {
+				cursor.feed(json, i, 1);
+				drain(cursor, events);
+			}
+			cursor.endOfInput();
+			drain(cursor, events);
+
+			assertEquals(events(new StreamingJsonCursor(new TokenReader(json,
+					0, json.length))), events.toString());
+		}
+	}
+
+	@Test
+	public void testMultipleDocuments() {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setMultipleDocuments(true);
+		final NonBlockingJsonCursor cursor = factory
+				.createNonBlockingJsonCursor();
+
+		cursor.feed(bytes("{\"a\":1}\n[tr"));
+		assertEquals(StreamingJsonCursor.START_OBJECT, cursor.next());
+		assertEquals(StreamingJsonCursor.KEY, cursor.next());
+		assertEquals(StreamingJsonCursor.NUMBER, cursor.next());
+		assertEquals(1, cursor.getLong());
+		assertEquals(StreamingJsonCursor.END_OBJECT, cursor.next());
+		// a document is complete without waiting for more input
+		assertEquals(StreamingJsonCursor.END_DOCUMENT, cursor.next());
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(NonBlockingJsonCursor.NEED_MORE_INPUT, cursor.next());
+		assertEquals(NonBlockingJsonCursor.NEED_MORE_INPUT, cursor.next());
+
+		cursor.feed(bytes("ue]"));
+		assertEquals(StreamingJsonCursor.TRUE, cursor.next());
+		assertEquals(StreamingJsonCursor.END_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.END_DOCUMENT, cursor.next());
+		assertEquals(NonBlockingJsonCursor.NEED_MORE_INPUT, cursor.next());
+		cursor.endOfInput();
+		assertEquals(StreamingJsonCursor.END, cursor.next());
+	}
+
+	@Test
+	public void testSkipChildren() {
+		final NonBlockingJsonCursor cursor = new NonBlockingJsonCursor();
+		cursor.feed(bytes("[{\"a\":[1,2"));
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.START_OBJECT, cursor.next());
+		assertEquals(NonBlockingJsonCursor.NEED_MORE_INPUT,
+				cursor.skipChildren());
+
+		cursor.feed(bytes("]},3]"));
+		assertEquals(StreamingJsonCursor.END_OBJECT, cursor.skipChildren());
+		assertEquals(StreamingJsonCursor.NUMBER, cursor.next());
+		assertEquals(3, cursor.getLong());
+		assertEquals(StreamingJsonCursor.END_ARRAY, cursor.next());
+	}
+
+	@Test
+	public void testTruncated() {
+		final NonBlockingJsonCursor cursor = new NonBlockingJsonCursor();
+		cursor.feed(bytes("[\"abc"));
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(NonBlockingJsonCursor.NEED_MORE_INPUT, cursor.next());
+		cursor.endOfInput();
+		try {
+			cursor.next();
+			throw new AssertionError("Expected a JsonParseException");
+		} catch (final JsonParseException e) {
+			assertEquals("Unterminated string", e.getMessage());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testLongTokensInSmallChunks() {
+		final StringBuilder text = new StringBuilder();
+		while (text.length() < 1 << 20) {
+			text.append("chunk \\\" \u00e9 ");
+		}
+		final StringBuilder number = new StringBuilder("-1.");
+		while (number.length() < 1 << 16) {
+			number.append("0123456789");
+		}
+		final byte[] json = ("[\"" + text + "\", " + number + "e-5, \"x\"]")
+				.getBytes(StandardCharsets.UTF_8);
+
+		for (final boolean lazy : new boolean[] { false, true }) {
+			final NonBlockingJsonCursor cursor = newCursor(lazy);
+			final StringBuilder events = new StringBuilder("0 ");
+			for (int i = 0; i < json.length; i += 16) {
+				cursor.feed(json, i, Math.min(16, json.length - i));
+				drain(cursor, events);
+			}
+			cursor.endOfInput();
+			drain(cursor, events);
+
+			assertEquals(events(new StreamingJsonCursor(new TokenReader(json,
+					0, json.length))), events.toString());
+		}
+	}
+
+	@Test
+	public void testReset() {
+		final NonBlockingJsonCursor cursor = new NonBlockingJsonCursor();
+		cursor.feed(bytes("{\"a\":"));
+		assertEquals(StreamingJsonCursor.START_OBJECT, cursor.next());
+
+		cursor.reset();
+		cursor.feed(bytes("[]"));
+		cursor.endOfInput();
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.END_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.END, cursor.next());
+	}
+
+	@Test
+	public void testResetInsideString() {
+		final NonBlockingJsonCursor cursor = newCursor(true);
+		// never decoded, so its bad escape is not reported
+		cursor.feed(bytes("[\"bad \\x escape\", \"unfinished"));
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.STRING, cursor.next());
+
+		cursor.reset();
+		cursor.feed(bytes("[\"ok\"]"));
+		cursor.endOfInput();
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.STRING, cursor.next());
+		assertEquals("ok", cursor.getText());
+		assertEquals(StreamingJsonCursor.END_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.END, cursor.next());
+	}
+
+	private static void drain(final NonBlockingJsonCursor cursor,
+			final StringBuilder events) {
+		while (cursor.hasNext()) {
+			final int event = cursor.next();
+			if (event == NonBlockingJsonCursor.NEED_MORE_INPUT) {
+				return;
+			}
+			append(cursor, event, events);
+		}
+	}
+
+	private static String events(final StreamingJsonCursor cursor) {
+		final StringBuilder events = new StringBuilder("0 ");
+		while (cursor.hasNext()) {
+			append(cursor, cursor.next(), events);
+		}
+		return events.toString();
+	}
+
+	private static void append(final StreamingJsonCursor cursor,
+			final int event, final StringBuilder events) {
+		events.append(event);
+		if (cursor.hasText()) {
+			events.append(':').append(cursor.getText());
+		}
+		events.append(' ');
+	}
+
+	private static NonBlockingJsonCursor newCursor(final boolean lazyStrings) {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setLazyStrings(lazyStrings);
+		return factory.createNonBlockingJsonCursor();
+	}
+
+	private static ByteBuffer bytes(final String json) {
+		return ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
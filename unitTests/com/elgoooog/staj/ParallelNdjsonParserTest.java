@@ -0,0 +1,130 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.elgoooog.staj.ParallelNdjsonParser.RecordHandler;
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+public class ParallelNdjsonParserTest {
+	private static final RecordHandler<Long> ID = new RecordHandler<Long>() {
+		@Override
+		public Long handleRecord(final StreamingJsonReader record) {
+			assertEquals(JsonEvent.START, record.next());
+			assertEquals(JsonEvent.START_OBJECT, record.next());
+			assertEquals("id", record.next().value);
+			final long id = record.next().getLong();
+			record.skipChildren();
+			assertEquals(JsonEvent.END, record.next());
+			return id;
+		}
+	};
+
+	private ExecutorService executor;
+	private ParallelNdjsonParser parser;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		parser = new StreamingJsonReaderFactory()
+				.createParallelNdjsonParser(executor);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testOrdered() throws Exception {
+		parser.setOrdered(true);
+		parser.setChunkSize(100);
+
+		final List<Long> ids = new ArrayList<Long>();
+		assertEquals(1000, parser.parse(records(1000, "\n"), ID, ids::add));
+
+		for (int i = 0; i < 1000; ++i) {
+			assertEquals(i, ids.get(i).longValue());
+		}
+	}
+
+	@Test
+	public void testUnordered() throws Exception {
+		parser.setChunkSize(64);
+		parser.setMaxChunksInFlight(2);
+
+		final List<Long> ids = new ArrayList<Long>();
+		assertEquals(1000, parser.parse(records(1000, "\r\n"), ID, ids::add));
+
+		Collections.sort(ids);
+		for (int i = 0; i < 1000; ++i) {
+			assertEquals(i, ids.get(i).longValue());
+		}
+	}
+
+	@Test
+	public void testLinesLongerThanChunk() throws Exception {
+		parser.setOrdered(true);
+		parser.setChunkSize(8);
+
+		final String json = "{\"id\":1,\"text\":\"" + "x".repeat(100)
+				+ "\"}\n\n  \n{\"id\":2}";
+		final List<Long> ids = new ArrayList<Long>();
+		assertEquals(2, parser.parse(new ByteArrayInputStream(json
+				.getBytes(StandardCharsets.UTF_8)), ID, ids::add));
+		assertEquals(List.of(1L, 2L), ids);
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		assertEquals(0, parser.parse(new ByteArrayInputStream(new byte[0]),
+				ID));
+	}
+
+	@Test
+	public void testInvalidRecord() throws Exception {
+		parser.setChunkSize(16);
+
+		try {
+			parser.parse(new ByteArrayInputStream(
+					"{\"id\":1}\n{\"id\":2,}\n{\"id\":3}\n"
+							.getBytes(StandardCharsets.UTF_8)),
+					new RecordHandler<Void>() {
+						@Override
+						public Void handleRecord(
+								final StreamingJsonReader record) {
+							while (record.next() != JsonEvent.END) {
+							}
+							return null;
+						}
+					});
+		} catch (final JsonParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Expected"));
+			return;
+		}
+		throw new AssertionError("Expected a JsonParseException");
+	}
+
+	private static ByteArrayInputStream records(final int count,
+			final String separator) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < count; ++i) {
+			builder.append("{\"id\":").append(i)
+					.append(",\"tags\":[\"a\",\"b\"]}").append(separator);
+		}
+		return new ByteArrayInputStream(builder.toString().getBytes(
+				StandardCharsets.UTF_8));
+	}
+}
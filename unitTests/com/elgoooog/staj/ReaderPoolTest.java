@@ -0,0 +1,168 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+public class ReaderPoolTest {
+	private final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+
+	@Test
+	public void testThreadLocal() {
+		factory.setPool(ReaderPool.threadLocal());
+
+		final StreamingJsonReader reader = factory
+				.createSynchronousStreamingJsonReader(input("{\"a\":[1,2]}"));
+		assertEquals(JsonEvent.START, reader.next());
+		assertEquals(JsonEvent.START_OBJECT, reader.next());
+		// released part way through the document
+		factory.release(reader);
+
+		final StreamingJsonReader reused = factory
+				.createSynchronousStreamingJsonReader(input("[\"b\"]"));
+		assertSame(reader, reused);
+		assertEquals(JsonEvent.START, reused.next());
+		assertEquals(JsonEvent.START_ARRAY, reused.next());
+		assertEquals("b", reused.next().value);
+		assertEquals(JsonEvent.END_ARRAY, reused.next());
+		assertEquals(JsonEvent.END, reused.next());
+
+		// the pool only holds what was released
+		assertNotSame(reused, factory
+				.createSynchronousStreamingJsonReader(input("[]")));
+	}
+
+	@Test
+	public void testShared() throws Exception {
+		factory.setPool(ReaderPool.shared(1));
+
+		final StreamingJsonCursor first = factory
+				.createStreamingJsonCursor(input("[1]"));
+		final StreamingJsonCursor second = factory
+				.createStreamingJsonCursor(input("[2]"));
+		factory.release(first);
+		// dropped, the pool is full
+		factory.release(second);
+
+		final StreamingJsonCursor[] reused = new StreamingJsonCursor[2];
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				reused[0] = factory.createStreamingJsonCursor(input("[3]"));
+				reused[1] = factory.createStreamingJsonCursor(input("[4]"));
+			}
+		};
+		thread.start();
+		thread.join();
+
+		assertSame(first, reused[0]);
+		assertNotSame(second, reused[1]);
+		assertEquals(StreamingJsonCursor.START_ARRAY, reused[0].next());
+		assertEquals(StreamingJsonCursor.NUMBER, reused[0].next());
+		assertEquals("3", reused[0].getText());
+	}
+
+	@Test
+	public void testSettingsChanged() {
+		factory.setPool(ReaderPool.threadLocal());
+		final StreamingJsonReader reader = factory
+				.createSynchronousStreamingJsonReader(input("[]"));
+		factory.release(reader);
+
+		factory.setProjection(new JsonPathProjection("$.a"));
+		final StreamingJsonReader projected = factory
+				.createSynchronousStreamingJsonReader(input("{\"a\":1,\"b\":2}"));
+		assertNotSame(reader, projected);
+		assertEquals(JsonEvent.START, projected.next());
+		assertEquals(JsonEvent.START_OBJECT, projected.next());
+		assertEquals("a", projected.next().value);
+		assertEquals("1", projected.next().value);
+		assertEquals(JsonEvent.END_OBJECT, projected.next());
+		factory.release(projected);
+
+		factory.setMaxDepth(1);
+		final StreamingJsonReader limited = factory
+				.createSynchronousStreamingJsonReader(input("{\"a\":[1]}"));
+		assertSame(projected, limited);
+		assertEquals(JsonEvent.START, limited.next());
+		assertEquals(JsonEvent.START_OBJECT, limited.next());
+		assertEquals("a", limited.next().value);
+		try {
+			limited.next();
+			throw new AssertionError("Expected a JsonParseException");
+		} catch (final JsonParseException e) {
+			assertEquals("Nesting deeper than 1 levels", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testByteArrayPooled() {
+		factory.setPool(ReaderPool.threadLocal());
+
+		final byte[] json = "[1]".getBytes(StandardCharsets.UTF_8);
+		final StreamingJsonReader reader = factory
+				.createSynchronousStreamingJsonReader(json);
+		factory.release(reader);
+
+		// reset onto a stream, which is not read into the released array
+		final StreamingJsonReader reused = factory
+				.createSynchronousStreamingJsonReader(input("[22]"));
+		assertSame(reader, reused);
+		assertEquals("start startArr number:22 endArr end ", events(reused));
+		assertEquals("[1]", new String(json, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testNonBlockingNotPooled() {
+		factory.setPool(ReaderPool.threadLocal());
+
+		final NonBlockingJsonCursor nonBlocking = factory
+				.createNonBlockingJsonCursor();
+		factory.release(nonBlocking);
+
+		final StreamingJsonCursor cursor = factory
+				.createStreamingJsonCursor(input("[1]"));
+		assertNotSame(nonBlocking, cursor);
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		factory.release(cursor);
+		assertSame(cursor, factory.createStreamingJsonCursor(input("[]")));
+	}
+
+	@Test
+	public void testThreadedReset() {
+		final StreamingJsonReader reader = factory.createStreamingJsonReader(
+				input("[1]"), 4);
+		try {
+			reader.reset(input("[2]"));
+			throw new AssertionError("Expected an IllegalStateException");
+		} catch (final IllegalStateException e) {
+			// not done yet
+		}
+
+		assertEquals("start startArr number:1 endArr end ", events(reader));
+		reader.reset(input("{\"a\":2}"));
+		assertEquals("start startObj key:a number:2 endObj end ",
+				events(reader));
+	}
+
+	private static String events(final StreamingJsonReader reader) {
+		final StringBuilder events = new StringBuilder();
+		JsonEvent event;
+		do {
+			event = reader.next();
+			events.append(event).append(' ');
+		} while (event != JsonEvent.END);
+		return events.toString();
+	}
+
+	private static ByteArrayInputStream input(final String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,297 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+
+public class StreamingJsonCursorTest {
+	private StreamingJsonCursor cursor;
+
+	@Test
+	public void testMatchesReader() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(getClass()
+				.getResourceAsStream("whitespaceTest.json")));
+		final StreamingJsonReader reader = new SynchronousStreamingJsonReader(
+				new TokenReader(getClass().getResourceAsStream(
+						"whitespaceTest.json")));
+
+		assertEquals(JsonEvent.START, reader.next());
+		assertEquals(StreamingJsonCursor.START, cursor.getEventType());
+
+		JsonEvent event;
+		do {
+			event = reader.next();
+			assertEquals(event.type.code, cursor.next());
+			if (cursor.hasText()) {
+				assertEquals(event.value, cursor.getText());
+				assertEquals(event.value, new String(
+						cursor.getTextCharacters(), cursor.getTextOffset(),
+						cursor.getTextLength()));
+			}
+		} while (event != JsonEvent.END);
+
+		assertFalse(cursor.hasNext());
+	}
+
+	@Test
+	public void testGetLong() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"[0, -0, 42, -7, 9223372036854775807, -9223372036854775808]")));
+
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		final long[] expected = { 0, 0, 42, -7, Long.MAX_VALUE,
+				Long.MIN_VALUE };
+		for (final long value : expected) {
+			assertEquals(StreamingJsonCursor.NUMBER, cursor.next());
+			assertEquals(value, cursor.getLong());
+		}
+		assertEquals(StreamingJsonCursor.END_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.END, cursor.next());
+	}
+
+	@Test
+	public void testGetDouble() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"[1.5, -0.25e2, 12345678901234567890123, 1E-3, 0.1, 7]")));
+
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		final String[] expected = { "1.5", "-0.25e2",
+				"12345678901234567890123", "1E-3", "0.1", "7" };
+		for (final String value : expected) {
+			assertEquals(StreamingJsonCursor.NUMBER, cursor.next());
+			assertEquals(Double.parseDouble(value), cursor.getDouble(), 0);
+			assertEquals(new BigDecimal(value), cursor.getBigDecimal());
+			assertEquals(value.equals("7"), cursor.fitsInLong());
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testGetLong_overflow() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"[9223372036854775808]")));
+
+		cursor.next();
+		cursor.next();
+		cursor.getLong();
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testGetLong_fraction() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"[1.5]")));
+
+		cursor.next();
+		cursor.next();
+		cursor.getLong();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetText_noText() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"[true]")));
+
+		cursor.next();
+		assertTrue(cursor.hasNext());
+		cursor.getText();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNext_afterEnd() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"[]")));
+
+		while (cursor.hasNext()) {
+			cursor.next();
+		}
+		cursor.next();
+	}
+
+	@Test
+	public void testSkipChildren() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"{\"skip\": {\"a\": [1, \"]}\\\"\", {}]}, \"keep\": 2}")));
+
+		assertEquals(StreamingJsonCursor.START_OBJECT, cursor.next());
+		assertEquals(StreamingJsonCursor.KEY, cursor.next());
+		assertEquals(StreamingJsonCursor.START_OBJECT, cursor.next());
+		assertEquals(StreamingJsonCursor.END_OBJECT, cursor.skipChildren());
+		assertEquals(StreamingJsonCursor.KEY, cursor.next());
+		assertEquals("keep", cursor.getText());
+		assertEquals(StreamingJsonCursor.NUMBER, cursor.next());
+		assertEquals(2, cursor.getLong());
+		assertEquals(StreamingJsonCursor.END_OBJECT, cursor.next());
+		assertEquals(StreamingJsonCursor.END, cursor.next());
+	}
+
+	@Test
+	public void testSkipValue() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"[[1, [2]], \"a\", -1.5e3, true, null, {\"x\": \"}\"}, 7]")));
+
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		for (int i = 0; i < 6; ++i) {
+			assertTrue(cursor.skipValue());
+		}
+		assertEquals(StreamingJsonCursor.NUMBER, cursor.next());
+		assertEquals(7, cursor.getLong());
+		assertFalse(cursor.skipValue());
+		assertEquals(StreamingJsonCursor.END_ARRAY, cursor.next());
+		assertFalse(cursor.skipValue());
+		assertEquals(StreamingJsonCursor.END, cursor.next());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSkipValue_atKey() throws Exception {
+		cursor = new StreamingJsonCursor(new TokenReader(new StringReader(
+				"{\"a\": 1}")));
+
+		cursor.next();
+		cursor.skipValue();
+	}
+
+	@Test
+	public void testLazyStrings_matchesEager() throws Exception {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		final String eager = events(factory.createStreamingJsonCursor(getClass()
+				.getResourceAsStream("whitespaceTest.json")));
+		factory.setLazyStrings(true);
+		assertEquals(eager, events(factory.createStreamingJsonCursor(getClass()
+				.getResourceAsStream("whitespaceTest.json"))));
+	}
+
+	@Test
+	public void testContentEquals() throws Exception {
+		for (final boolean lazy : new boolean[] { false, true }) {
+			final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+			factory.setLazyStrings(lazy);
+			cursor = factory.createStreamingJsonCursor(new StringReader(
+					"{\"type\": \"order\", \"text\": \"a\\\"b\","
+							+ " \"name\": \"caf\u00e9\", \"n\": 12}"));
+
+			assertEquals(StreamingJsonCursor.START_OBJECT, cursor.next());
+			assertEquals(StreamingJsonCursor.KEY, cursor.next());
+			assertTrue(cursor.contentEquals("type"));
+			assertEquals(StreamingJsonCursor.STRING, cursor.next());
+			assertTrue(cursor.contentEquals("order"));
+			assertFalse(cursor.contentEquals("orders"));
+			assertFalse(cursor.contentEquals("ordex"));
+			assertTrue(cursor.startsWith("ord"));
+			assertTrue(cursor.startsWith(""));
+			assertFalse(cursor.startsWith("orders"));
+			assertEquals("order", cursor.getText());
+
+			assertEquals(StreamingJsonCursor.KEY, cursor.next());
+			assertEquals(StreamingJsonCursor.STRING, cursor.next());
+			assertTrue(cursor.contentEquals("a\"b"));
+			assertTrue(cursor.startsWith("a\""));
+
+			assertEquals(StreamingJsonCursor.KEY, cursor.next());
+			assertEquals(StreamingJsonCursor.STRING, cursor.next());
+			assertTrue(cursor.contentEquals("caf\u00e9"));
+			assertEquals(4, cursor.getTextLength());
+
+			assertEquals(StreamingJsonCursor.KEY, cursor.next());
+			assertEquals(StreamingJsonCursor.NUMBER, cursor.next());
+			assertTrue(cursor.contentEquals("12"));
+		}
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testLazyStrings_invalidEscapeOnRead() throws Exception {
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setLazyStrings(true);
+		cursor = factory.createStreamingJsonCursor(new StringReader(
+				"[\"\\x\"]"));
+
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.STRING, cursor.next());
+		cursor.getText();
+	}
+
+	@Test
+	public void testStreamedStrings() throws Exception {
+		final StringBuilder value = new StringBuilder();
+		final StringBuilder escaped = new StringBuilder();
+		for (int i = 0; i < 20000; ++i) {
+			value.append("ab\"\u00e9\ud83d\ude00");
+			escaped.append("ab\\\"\u00e9\\ud83d\\ude00");
+		}
+		final String json = "[\"" + escaped + "\", \"short\", \"skipped "
+				+ escaped + "\", 1]";
+
+		final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+		factory.setStreamedStrings(true);
+		cursor = factory.createStreamingJsonCursor(new StringReader(json));
+
+		assertEquals(StreamingJsonCursor.START_ARRAY, cursor.next());
+		assertEquals(StreamingJsonCursor.STRING, cursor.next());
+		final StringBuilder read = new StringBuilder();
+		final char[] chunk = new char[1000];
+		int count;
+		while ((count = cursor.readTextChunk(chunk)) != -1) {
+			read.append(chunk, 0, count);
+		}
+		assertEquals(value.toString(), read.toString());
+		try {
+			cursor.getText();
+			throw new AssertionError("Expected an IllegalStateException");
+		} catch (final IllegalStateException e) {
+			// read in chunks already
+		}
+
+		assertEquals(StreamingJsonCursor.STRING, cursor.next());
+		assertEquals("short", cursor.getText());
+		assertEquals(StreamingJsonCursor.STRING, cursor.next());
+		assertEquals('s', cursor.getValueAsReader().read());
+		// the rest is skipped
+		assertEquals(StreamingJsonCursor.NUMBER, cursor.next());
+		assertEquals(1, cursor.getLong());
+		assertEquals(StreamingJsonCursor.END_ARRAY, cursor.next());
+	}
+
+	@Test
+	public void testReadBase64() throws Exception {
+		final byte[] bytes = new byte[100000];
+		new Random(1).nextBytes(bytes);
+		final String base64 = Base64.getMimeEncoder().encodeToString(bytes)
+				.replace("\r\n", "\\r\\n");
+
+		for (final boolean streamed : new boolean[] { false, true }) {
+			final StreamingJsonReaderFactory factory = new StreamingJsonReaderFactory();
+			factory.setStreamedStrings(streamed);
+			cursor = factory.createStreamingJsonCursor(new StringReader(
+					"{\"data\": \"" + base64 + "\"}"));
+
+			assertEquals(StreamingJsonCursor.START_OBJECT, cursor.next());
+			assertEquals(StreamingJsonCursor.KEY, cursor.next());
+			assertEquals(StreamingJsonCursor.STRING, cursor.next());
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(bytes.length, cursor.readBase64(out));
+			assertArrayEquals(bytes, out.toByteArray());
+			assertEquals(StreamingJsonCursor.END_OBJECT, cursor.next());
+		}
+	}
+
+	private static String events(final StreamingJsonCursor cursor) {
+		final StringBuilder events = new StringBuilder();
+		while (cursor.hasNext()) {
+			events.append(cursor.next());
+			if (cursor.hasText()) {
+				events.append(':').append(cursor.getText());
+			}
+			events.append(' ');
+		}
+		return events.toString();
+	}
+}
@@ -0,0 +1,253 @@
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.elgoooog.staj.StreamingJsonReader.JsonEvent;
+import com.elgoooog.staj.StreamingJsonReader.JsonEventType;
+
+public class StreamingJsonParserTest {
+	private StreamingJsonParser parser;
+
+	@Test
+	public void testDeepNesting() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				nested(StreamingJsonParser.DEFAULT_MAX_DEPTH))));
+
+		for (int i = 0; i < StreamingJsonParser.DEFAULT_MAX_DEPTH; ++i) {
+			assertEquals(i % 2 == 0 ? JsonEvent.START_OBJECT
+					: JsonEvent.START_ARRAY, parser.readNext());
+			if (i % 2 == 0) {
+				assertEquals("a", parser.readNext().value);
+			}
+		}
+		assertEquals("1", parser.readNext().value);
+		for (int i = StreamingJsonParser.DEFAULT_MAX_DEPTH - 1; i >= 0; --i) {
+			assertEquals(i % 2 == 0 ? JsonEvent.END_OBJECT
+					: JsonEvent.END_ARRAY, parser.readNext());
+		}
+		assertEquals(JsonEvent.END, parser.readNext());
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testDeepNesting_exceedsDefault() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				nested(StreamingJsonParser.DEFAULT_MAX_DEPTH + 1))));
+
+		JsonEvent event;
+		do {
+			event = parser.readNext();
+		} while (event != JsonEvent.END);
+	}
+
+	@Test
+	public void testMaxDepth() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				"[[[1]], [[2], []]]")));
+		parser.setMaxDepth(3);
+
+		JsonEvent event;
+		int events = 0;
+		do {
+			event = parser.readNext();
+			++events;
+		} while (event != JsonEvent.END);
+		assertEquals(15, events);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testMaxDepth_exceeded() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				"[[[{}]]]")));
+		parser.setMaxDepth(3);
+
+		parser.readNext();
+		parser.readNext();
+		parser.readNext();
+		parser.readNext();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaxDepth_invalid() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				"[]")));
+		parser.setMaxDepth(0);
+	}
+
+	@Test
+	public void testNumberEvents() {
+		final String[] expected = { "1.5", "-0.25e2",
+				"12345678901234567890123", "-1E-3", "0.1", "7", "1e400",
+				"-9223372036854775808" };
+		parser = new StreamingJsonParser(new TokenReader(new StringReader("["
+				+ String.join(",", expected) + "]")));
+
+		assertEquals(JsonEvent.START_ARRAY, parser.readNext());
+		JsonEvent event = null;
+		for (final String value : expected) {
+			event = parser.readNext();
+			assertEquals(value, event.value);
+			assertEquals(Double.parseDouble(value), event.getDouble(), 0);
+			assertEquals(new BigDecimal(value), event.getBigDecimal());
+			assertEquals(value.equals("7") || value.startsWith("-92"),
+					event.fitsInLong());
+		}
+		assertEquals(Long.MIN_VALUE, event.getLong());
+	}
+
+	@Test
+	public void testErrors() {
+		assertError("\"a\"",
+				"Illegal state:  Expected Open Bracket/Brace, not found.");
+		assertError("[:", "Illegal state:  Expected Value, not found.");
+		assertError("[1,]", "Illegal state:  Expected Value, not found.");
+		assertError("{1", "Illegal state:  Expected String, not found.");
+		assertError("{\"a\" 1", "Illegal state:  Expected colon, not found");
+		assertError("[1 2",
+				"Illegal state:  Expected comma or Close Bracket, not found");
+		assertError("{\"a\": 1 \"b\"",
+				"Illegal state:  Expected comma, not found");
+		assertError("{\"a\": 1,}",
+				"Illegal state:  Expected String, not found.");
+	}
+
+	@Test
+	public void testTrailingContent() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				"[1] {} garbage")));
+
+		assertEquals(JsonEvent.START_ARRAY, parser.readNext());
+		assertEquals("1", parser.readNext().value);
+		assertEquals(JsonEvent.END_ARRAY, parser.readNext());
+		assertEquals(JsonEvent.END, parser.readNext());
+		assertEquals(false, parser.skipValue());
+		assertEquals(JsonEvent.END, parser.readNext());
+	}
+
+	@Test
+	public void testTrailingContent_strictEnd() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				"[1] \n")));
+		parser.setStrictEnd(true);
+		assertEquals(JsonEvent.START_ARRAY, parser.readNext());
+		assertEquals("1", parser.readNext().value);
+		assertEquals(JsonEvent.END_ARRAY, parser.readNext());
+		assertEquals(JsonEvent.END, parser.readNext());
+
+		assertError("{}{}", true,
+				"Illegal state:  Expected end of input, not found.");
+		assertError("[] 1", true,
+				"Illegal state:  Expected end of input, not found.");
+	}
+
+	@Test
+	public void testMultipleDocuments() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				"{\"a\":1}[2] {}\n[]")));
+		parser.setMultipleDocuments(true);
+
+		assertEquals(JsonEvent.START_OBJECT, parser.readNext());
+		assertEquals("a", parser.readNext().value);
+		assertEquals("1", parser.readNext().value);
+		assertEquals(JsonEvent.END_OBJECT, parser.readNext());
+		assertEquals(JsonEvent.END_DOCUMENT, parser.readNext());
+		assertEquals(JsonEvent.START_ARRAY, parser.readNext());
+		assertEquals("2", parser.readNext().value);
+		assertEquals(JsonEvent.END_ARRAY, parser.readNext());
+		assertEquals(JsonEvent.END_DOCUMENT, parser.readNext());
+		assertEquals(JsonEvent.START_OBJECT, parser.readNext());
+		assertEquals(JsonEvent.END_OBJECT, parser.readNext());
+		assertEquals(JsonEvent.END_DOCUMENT, parser.readNext());
+		assertEquals(JsonEvent.START_ARRAY, parser.readNext());
+		assertEquals(JsonEvent.END_ARRAY, parser.readNext());
+		assertEquals(JsonEvent.END_DOCUMENT, parser.readNext());
+		assertEquals(JsonEvent.END, parser.readNext());
+	}
+
+	@Test
+	public void testMultipleDocuments_skip() {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				"{\"a\":[1]} [2,3] {\"b\":4}")));
+		parser.setMultipleDocuments(true);
+
+		assertEquals(true, parser.skipValue());
+		assertEquals(false, parser.skipValue());
+		assertEquals(JsonEvent.END_DOCUMENT, parser.readNext());
+		assertEquals(JsonEvent.START_ARRAY, parser.readNext());
+		assertEquals(JsonEventType.END_ARRAY, parser.skipChildren());
+		assertEquals(JsonEvent.END_DOCUMENT, parser.readNext());
+		assertEquals(JsonEvent.START_OBJECT, parser.readNext());
+		assertEquals("b", parser.readNext().value);
+		assertEquals("4", parser.readNext().value);
+		assertEquals(JsonEvent.END_OBJECT, parser.readNext());
+		assertEquals(JsonEvent.END_DOCUMENT, parser.readNext());
+		assertEquals(false, parser.skipValue());
+		assertEquals(JsonEvent.END, parser.readNext());
+	}
+
+	@Test
+	public void testMultipleDocuments_endBeforeNextRead() {
+		// the second document has not arrived yet, so reading on would fail
+		final InputStream input = new InputStream() {
+			private final byte[] first = "{\"a\":1}"
+					.getBytes(StandardCharsets.UTF_8);
+			private int position;
+
+			@Override
+			public int read() throws IOException {
+				if (position == first.length) {
+					throw new IOException("Would block");
+				}
+				return first[position++];
+			}
+		};
+		parser = new StreamingJsonParser(new TokenReader(input));
+		parser.setMultipleDocuments(true);
+
+		assertEquals(JsonEvent.START_OBJECT, parser.readNext());
+		assertEquals("a", parser.readNext().value);
+		assertEquals("1", parser.readNext().value);
+		assertEquals(JsonEvent.END_OBJECT, parser.readNext());
+		assertEquals(JsonEvent.END_DOCUMENT, parser.readNext());
+	}
+
+	private void assertError(final String json, final String message) {
+		assertError(json, false, message);
+	}
+
+	private void assertError(final String json, final boolean strictEnd,
+			final String message) {
+		parser = new StreamingJsonParser(new TokenReader(new StringReader(
+				json)));
+		parser.setStrictEnd(strictEnd);
+		try {
+			JsonEvent event;
+			do {
+				event = parser.readNext();
+			} while (event != JsonEvent.END);
+			fail("Expected a JsonParseException for " + json);
+		} catch (final JsonParseException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+
+	private static String nested(final int depth) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < depth; ++i) {
+			builder.append(i % 2 == 0 ? "{\"a\":" : "[");
+		}
+		builder.append('1');
+		for (int i = depth - 1; i >= 0; --i) {
+			builder.append(i % 2 == 0 ? '}' : ']');
+		}
+		return builder.toString();
+	}
+}
@@ -1,418 +1,527 @@
-package com.elgoooog.staj;
-
-import static org.junit.Assert.assertEquals;
-
-import java.io.StringReader;
-
-import org.junit.Test;
-
-import com.elgoooog.staj.TokenReader.Token;
-import com.elgoooog.staj.TokenReader.TokenType;
-
-public class TokenReaderTest {
-	private TokenReader reader;
-
-	@Test
-	public void testParseString() throws Exception {
-		reader = new TokenReader(new StringReader("Cat\""));
-
-		final Token token = reader.parseString();
-		assertEquals("Cat", token.value);
-		assertEquals(TokenType.STRING, token.type);
-	}
-
-	@Test
-	public void testParseNumber_whole() throws Exception {
-		reader = new TokenReader(new StringReader("3"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("3", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNumber_zero() throws Exception {
-		reader = new TokenReader(new StringReader("0"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("0", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNumber_zeroPointSomething() throws Exception {
-		reader = new TokenReader(new StringReader("0.223"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("0.223", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNumber_e() throws Exception {
-		reader = new TokenReader(new StringReader("0.223e3"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("0.223e3", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNumber_ePlus() throws Exception {
-		reader = new TokenReader(new StringReader("0.223e+3"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("0.223e+3", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNumber_eMinus() throws Exception {
-		reader = new TokenReader(new StringReader("0.223e-3"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("0.223e-3", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNumber_bigE() throws Exception {
-		reader = new TokenReader(new StringReader("0.223E3"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("0.223E3", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNumber_decimal() throws Exception {
-		reader = new TokenReader(new StringReader("3.14"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("3.14", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNumber_negative() throws Exception {
-		reader = new TokenReader(new StringReader("-3.14"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("-3.14", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test(expected = JsonParseException.class)
-	public void testParseNumber_exception_noDigitsAfterDecimal()
-			throws Exception {
-		reader = new TokenReader(new StringReader("3."));
-
-		reader.parseNumber();
-	}
-
-	@Test
-	public void testParseNumber_exception_multipleDecimals() throws Exception {
-		reader = new TokenReader(new StringReader("3.3.4"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("3.3", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test(expected = JsonParseException.class)
-	public void testParseNumber_exception_nothingAfterE() throws Exception {
-		reader = new TokenReader(new StringReader("3.3e"));
-
-		reader.parseNumber();
-	}
-
-	@Test
-	public void testParseNumber_exception_numbersAfter0() throws Exception {
-		reader = new TokenReader(new StringReader("014"));
-
-		final Token token = reader.parseNumber();
-		assertEquals("0", token.value);
-		assertEquals(TokenType.NUMBER, token.type);
-	}
-
-	@Test
-	public void testParseNull() throws Exception {
-		reader = new TokenReader(new StringReader("null"));
-
-		final Token token = reader.parseNull();
-		assertEquals(Token.NULL, token);
-	}
-
-	@Test(expected = JsonParseException.class)
-	public void testParseNull_notNull() throws Exception {
-		reader = new TokenReader(new StringReader("ul!"));
-
-		reader.parseNull();
-	}
-
-	@Test
-	public void testParseFalse() throws Exception {
-		reader = new TokenReader(new StringReader("false"));
-
-		final Token token = reader.parseFalse();
-		assertEquals(Token.FALSE, token);
-	}
-
-	@Test(expected = JsonParseException.class)
-	public void testParseFalse_notFalse() throws Exception {
-		reader = new TokenReader(new StringReader("a!se"));
-
-		reader.parseFalse();
-	}
-
-	@Test
-	public void testParseTrue() throws Exception {
-		reader = new TokenReader(new StringReader("true"));
-
-		final Token token = reader.parseTrue();
-		assertEquals(Token.TRUE, token);
-	}
-
-	@Test(expected = JsonParseException.class)
-	public void testParseTrue_notTrue() throws Exception {
-		reader = new TokenReader(new StringReader("ru3"));
-
-		reader.parseTrue();
-	}
-
-	@Test
-	public void testParseExactWord() throws Exception {
-		reader = new TokenReader(new StringReader("hello world"));
-
-		reader.parseExactWord("hello world");
-	}
-
-	@Test(expected = JsonParseException.class)
-	public void testParseExactWord_fail() throws Exception {
-		reader = new TokenReader(new StringReader("hello world"));
-
-		reader.parseExactWord("tally ho!");
-	}
-
-	@Test
-	public void testParseEscapedCharacter1() throws Exception {
-		reader = new TokenReader(new StringReader("t"));
-
-		final char c = reader.parseEscapedCharacter();
-		assertEquals('\t', c);
-	}
-
-	@Test
-	public void testParseEscapedCharacter2() throws Exception {
-		reader = new TokenReader(new StringReader("\""));
-
-		final char c = reader.parseEscapedCharacter();
-		assertEquals('\"', c);
-	}
-
-	@Test
-	public void testParseUnicodeCharacter1() throws Exception {
-		reader = new TokenReader(new StringReader("0021"));
-
-		final char c = reader.parseUnicodeCharacter();
-		assertEquals('!', c);
-	}
-
-	@Test
-	public void testParseUnicodeCharacter2() throws Exception {
-		reader = new TokenReader(new StringReader("00A1"));
-
-		final char c = reader.parseUnicodeCharacter();
-		assertEquals('', c);
-	}
-
-	@Test
-	public void testParseUnicodeCharacter2_caseSensitive() throws Exception {
-		reader = new TokenReader(new StringReader("00a1"));
-
-		final char c = reader.parseUnicodeCharacter();
-		assertEquals('', c);
-	}
-
-	@Test
-	public void testNoWhitespace() throws Exception {
-		reader = new TokenReader(getClass().getResourceAsStream(
-				"noWhitespaceTest.json"));
-
-		TokenReader.Token token = reader.readNext();
-		assertEquals(TokenReader.Token.OPEN_BRACE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("something", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COLON, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("somethingElse", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("another", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COLON, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.OPEN_BRACKET, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("hi", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.TRUE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.NULL, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.OPEN_BRACE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("hi", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COLON, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.NUMBER, token.type);
-		assertEquals("123", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.CLOSE_BRACE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.CLOSE_BRACKET, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("pint", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COLON, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.FALSE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.CLOSE_BRACE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.END, token);
-	}
-
-	@Test
-	public void testWhitespace() throws Exception {
-		reader = new TokenReader(getClass().getResourceAsStream(
-				"whitespaceTest.json"));
-
-		TokenReader.Token token = reader.readNext();
-		assertEquals(TokenReader.Token.OPEN_BRACE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("something", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COLON, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("somethingElse", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("another", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COLON, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.OPEN_BRACKET, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("hi", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.TRUE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.NULL, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.OPEN_BRACE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("hi", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COLON, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.NUMBER, token.type);
-		assertEquals("123", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.CLOSE_BRACE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.CLOSE_BRACKET, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COMMA, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.TokenType.STRING, token.type);
-		assertEquals("pint", token.value);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.COLON, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.FALSE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.CLOSE_BRACE, token);
-
-		token = reader.readNext();
-		assertEquals(TokenReader.Token.END, token);
-	}
-}
+package com.elgoooog.staj;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.elgoooog.staj.TokenReader.Token;
+import com.elgoooog.staj.TokenReader.TokenType;
+
+public class TokenReaderTest {
+	private TokenReader reader;
+
+	@Test
+	public void testParseString() throws Exception {
+		reader = new TokenReader(new StringReader("Cat\""));
+
+		final Token token = reader.parseString();
+		assertEquals("Cat", token.value);
+		assertEquals(TokenType.STRING, token.type);
+	}
+
+	@Test
+	public void testParseString_utf8() throws Exception {
+		final String value = "caf\u00e9 \u20ac \ud83d\ude00";
+		reader = new TokenReader(new ByteArrayInputStream(
+				(value + "\"").getBytes(StandardCharsets.UTF_8)));
+
+		final Token token = reader.parseString();
+		assertEquals(value, token.value);
+		assertEquals(TokenType.STRING, token.type);
+	}
+
+	@Test
+	public void testParseString_readerSurrogatePair() throws Exception {
+		reader = new TokenReader(new StringReader("\ud83d\ude00\\n\""));
+
+		final Token token = reader.parseString();
+		assertEquals("\ud83d\ude00\n", token.value);
+	}
+
+	@Test
+	public void testParseString_acrossBufferBoundary() throws Exception {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 20000; ++i) {
+			builder.append(i % 7 == 0 ? '\u00e9' : (char) ('a' + i % 26));
+		}
+		final String value = builder.toString();
+		reader = new TokenReader(new ByteArrayInputStream(
+				("\"" + value + "\"").getBytes(StandardCharsets.UTF_8)));
+
+		final Token token = reader.readNext();
+		assertEquals(value, token.value);
+		assertEquals(Token.END, reader.readNext());
+	}
+
+	@Test
+	public void testParseString_specialAtEveryOffset() throws Exception {
+		final String[] specials = { "\\\"", "\\\\", "\\n", "\u00e9" };
+		final String[] decoded = { "\"", "\\", "\n", "\u00e9" };
+		for (int s = 0; s < specials.length; ++s) {
+			for (int i = 0; i < 40; ++i) {
+				final String plain = "abcdefghijklmnopqrstuvwxyz0123456789ABCD";
+				final String json = "[\"" + plain.substring(0, i) + specials[s]
+						+ plain.substring(i) + "\",1]";
+
+				reader = new TokenReader(new ByteArrayInputStream(
+						json.getBytes(StandardCharsets.UTF_8)));
+				reader.readNext();
+				assertEquals(plain.substring(0, i) + decoded[s]
+						+ plain.substring(i), reader.readNext().value);
+
+				reader = new TokenReader(new ByteArrayInputStream(
+						json.getBytes(StandardCharsets.UTF_8)));
+				reader.readNext();
+				reader.skipValue();
+				assertEquals(TokenType.COMMA, reader.readNext().type);
+			}
+		}
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseString_invalidUtf8() throws Exception {
+		reader = new TokenReader(new ByteArrayInputStream(new byte[] {
+				(byte) 0xC3, 'a', '"' }));
+
+		reader.parseString();
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseString_unterminated() throws Exception {
+		reader = new TokenReader(new StringReader("Cat"));
+
+		reader.parseString();
+	}
+
+	@Test
+	public void testSkipValue_acrossBufferBoundary() throws Exception {
+		// move an escaped quote across the end of the first buffer
+		for (int padding = 8180; padding < 8195; ++padding) {
+			final StringBuilder builder = new StringBuilder("[[\"");
+			for (int i = 0; i < padding; ++i) {
+				builder.append('x');
+			}
+			builder.append("\\\"]\"], 4]");
+			reader = new TokenReader(new StringReader(builder.toString()));
+
+			assertEquals(TokenReader.TokenType.OPEN_BRACKET, reader.nextToken());
+			reader.skipValue();
+			assertEquals(TokenReader.TokenType.COMMA, reader.nextToken());
+			assertEquals(TokenReader.TokenType.NUMBER, reader.nextToken());
+			assertEquals("4", reader.getText());
+		}
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testSkipValue_unterminated() throws Exception {
+		reader = new TokenReader(new StringReader("{\"a\": [1, \"]\"}"));
+
+		reader.skipValue();
+	}
+
+	@Test
+	public void testParseNumber_whole() throws Exception {
+		reader = new TokenReader(new StringReader("3"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("3", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNumber_zero() throws Exception {
+		reader = new TokenReader(new StringReader("0"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("0", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNumber_zeroPointSomething() throws Exception {
+		reader = new TokenReader(new StringReader("0.223"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("0.223", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNumber_e() throws Exception {
+		reader = new TokenReader(new StringReader("0.223e3"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("0.223e3", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNumber_ePlus() throws Exception {
+		reader = new TokenReader(new StringReader("0.223e+3"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("0.223e+3", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNumber_eMinus() throws Exception {
+		reader = new TokenReader(new StringReader("0.223e-3"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("0.223e-3", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNumber_bigE() throws Exception {
+		reader = new TokenReader(new StringReader("0.223E3"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("0.223E3", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNumber_decimal() throws Exception {
+		reader = new TokenReader(new StringReader("3.14"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("3.14", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNumber_negative() throws Exception {
+		reader = new TokenReader(new StringReader("-3.14"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("-3.14", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseNumber_exception_noDigitsAfterDecimal()
+			throws Exception {
+		reader = new TokenReader(new StringReader("3."));
+
+		reader.parseNumber();
+	}
+
+	@Test
+	public void testParseNumber_exception_multipleDecimals() throws Exception {
+		reader = new TokenReader(new StringReader("3.3.4"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("3.3", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseNumber_exception_nothingAfterE() throws Exception {
+		reader = new TokenReader(new StringReader("3.3e"));
+
+		reader.parseNumber();
+	}
+
+	@Test
+	public void testParseNumber_exception_numbersAfter0() throws Exception {
+		reader = new TokenReader(new StringReader("014"));
+
+		final Token token = reader.parseNumber();
+		assertEquals("0", token.value);
+		assertEquals(TokenType.NUMBER, token.type);
+	}
+
+	@Test
+	public void testParseNull() throws Exception {
+		reader = new TokenReader(new StringReader("null"));
+
+		final Token token = reader.parseNull();
+		assertEquals(Token.NULL, token);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseNull_notNull() throws Exception {
+		reader = new TokenReader(new StringReader("ul!"));
+
+		reader.parseNull();
+	}
+
+	@Test
+	public void testParseFalse() throws Exception {
+		reader = new TokenReader(new StringReader("false"));
+
+		final Token token = reader.parseFalse();
+		assertEquals(Token.FALSE, token);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseFalse_notFalse() throws Exception {
+		reader = new TokenReader(new StringReader("a!se"));
+
+		reader.parseFalse();
+	}
+
+	@Test
+	public void testParseTrue() throws Exception {
+		reader = new TokenReader(new StringReader("true"));
+
+		final Token token = reader.parseTrue();
+		assertEquals(Token.TRUE, token);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseTrue_notTrue() throws Exception {
+		reader = new TokenReader(new StringReader("ru3"));
+
+		reader.parseTrue();
+	}
+
+	@Test
+	public void testParseExactWord() throws Exception {
+		reader = new TokenReader(new StringReader("hello world"));
+
+		reader.parseExactWord("hello world");
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseExactWord_fail() throws Exception {
+		reader = new TokenReader(new StringReader("hello world"));
+
+		reader.parseExactWord("tally ho!");
+	}
+
+	@Test
+	public void testParseEscapedCharacter1() throws Exception {
+		reader = new TokenReader(new StringReader("t"));
+
+		final char c = reader.parseEscapedCharacter();
+		assertEquals('\t', c);
+	}
+
+	@Test
+	public void testParseEscapedCharacter2() throws Exception {
+		reader = new TokenReader(new StringReader("\""));
+
+		final char c = reader.parseEscapedCharacter();
+		assertEquals('\"', c);
+	}
+
+	@Test
+	public void testParseUnicodeCharacter1() throws Exception {
+		reader = new TokenReader(new StringReader("0021"));
+
+		final char c = reader.parseUnicodeCharacter();
+		assertEquals('!', c);
+	}
+
+	@Test
+	public void testParseUnicodeCharacter2() throws Exception {
+		reader = new TokenReader(new StringReader("00A1"));
+
+		final char c = reader.parseUnicodeCharacter();
+		assertEquals('', c);
+	}
+
+	@Test
+	public void testParseUnicodeCharacter2_caseSensitive() throws Exception {
+		reader = new TokenReader(new StringReader("00a1"));
+
+		final char c = reader.parseUnicodeCharacter();
+		assertEquals('', c);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseUnicodeCharacter_invalid() throws Exception {
+		reader = new TokenReader(new StringReader("00g1"));
+
+		reader.parseUnicodeCharacter();
+	}
+
+	@Test
+	public void testNoWhitespace() throws Exception {
+		reader = new TokenReader(getClass().getResourceAsStream(
+				"noWhitespaceTest.json"));
+
+		TokenReader.Token token = reader.readNext();
+		assertEquals(TokenReader.Token.OPEN_BRACE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("something", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COLON, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("somethingElse", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("another", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COLON, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.OPEN_BRACKET, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("hi", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.TRUE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.NULL, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.OPEN_BRACE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("hi", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COLON, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.NUMBER, token.type);
+		assertEquals("123", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.CLOSE_BRACE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.CLOSE_BRACKET, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("pint", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COLON, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.FALSE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.CLOSE_BRACE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.END, token);
+	}
+
+	@Test
+	public void testWhitespace() throws Exception {
+		reader = new TokenReader(getClass().getResourceAsStream(
+				"whitespaceTest.json"));
+
+		TokenReader.Token token = reader.readNext();
+		assertEquals(TokenReader.Token.OPEN_BRACE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("something", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COLON, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("somethingElse", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("another", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COLON, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.OPEN_BRACKET, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("hi", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.TRUE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.NULL, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.OPEN_BRACE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("hi", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COLON, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.NUMBER, token.type);
+		assertEquals("123", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.CLOSE_BRACE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.CLOSE_BRACKET, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COMMA, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.TokenType.STRING, token.type);
+		assertEquals("pint", token.value);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.COLON, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.FALSE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.CLOSE_BRACE, token);
+
+		token = reader.readNext();
+		assertEquals(TokenReader.Token.END, token);
+	}
+}